@@ -0,0 +1,54 @@
+package br.com.mmt.libraryapi.benchmark;
+
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.service.BookService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BookServiceImpl.find: Example com ignoreCase + CONTAINING sobre a tabela de livros populada,
+ * comparado com BookServiceImpl.search sobre o índice em memória.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookServiceBenchmark {
+
+    private BookService service;
+
+    @Setup
+    public void setUp(LibraryState state) {
+        service = state.getBean(BookService.class);
+    }
+
+    @Benchmark
+    public Page<Book> findByTitle() {
+        return service.find(Book.builder().title("java").build(), PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Page<Book> findByTitleAndAuthor() {
+        return service.find(Book.builder().title("dados").author("ana").build(), PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Page<Book> findByTitleDeepPage() {
+        return service.find(Book.builder().title("java").build(), PageRequest.of(200, 20));
+    }
+
+    @Benchmark
+    public Page<Book> searchByTitle() {
+        return service.search("java", PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Page<Book> searchByTitleAndAuthor() {
+        return service.search("dados ana", PageRequest.of(0, 20));
+    }
+}
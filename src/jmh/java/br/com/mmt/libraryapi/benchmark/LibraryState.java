@@ -0,0 +1,105 @@
+package br.com.mmt.libraryapi.benchmark;
+
+import br.com.mmt.libraryapi.LibraryApiApplication;
+import br.com.mmt.libraryapi.service.impl.ActiveLoanIndex;
+import br.com.mmt.libraryapi.service.impl.BookSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sobe a aplicação (servidor web em porta aleatória, exigido pelo Swagger) sobre um H2 em memória e popula livros e emprestimos em volume.
+ * Os ids são atribuídos pela base na ordem de inserção: livros 1..books, sendo 1..activeLoans os emprestados.
+ */
+@State(Scope.Benchmark)
+public class LibraryState {
+
+    static final String[] TITLE_WORDS = {"Java", "Spring", "Arquitetura", "Dados", "Api", "Restfull", "Testes",
+            "Microsserviços", "Algoritmos", "Redes", "Segurança", "Cloud", "Kotlin", "Python", "Banco"};
+    static final String[] AUTHORS = {"Moises", "Maria", "João", "Ana", "Pedro", "Carla", "Lucas", "Fernanda"};
+    static final int LOAN_DAYS = 4;
+
+    @Param("50000")
+    public int books;
+
+    @Param("200000")
+    public int returnedLoans;
+
+    @Param("10000")
+    public int activeLoans;
+
+    @Param("0.5")
+    public double lateRatio;
+
+    public ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "spring.boot.admin.client.enabled=false",
+                        "logging.file.name=target/benchmark.log",
+                        "logging.level.root=WARN")
+                .run();
+        seed(context.getBean(JdbcTemplate.class));
+        context.getBean(ActiveLoanIndex.class).load();
+        context.getBean(BookSearchIndex.class).load();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    private void seed(JdbcTemplate jdbc) {
+        Random random = new Random(42);
+
+        List<Object[]> bookRows = new ArrayList<>(books);
+        for (int i = 1; i <= books; i++) {
+            String title = TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " "
+                    + TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " " + i;
+            bookRows.add(new Object[]{title, AUTHORS[random.nextInt(AUTHORS.length)], String.valueOf(1_000_000 + i)});
+        }
+        jdbc.batchUpdate("insert into book (title, author, isbn) values (?, ?, ?)", bookRows);
+
+        LocalDate today = LocalDate.now();
+        List<Object[]> loanRows = new ArrayList<>(returnedLoans + activeLoans);
+        for (int i = 0; i < returnedLoans; i++) {
+            long bookId = 1 + random.nextInt(books);
+            String customer = "customer" + random.nextInt(20_000);
+            loanRows.add(new Object[]{bookId, customer, customer + "@mail.com", today.minusDays(30 + random.nextInt(700)), true, null});
+        }
+        int lateLoans = (int) (activeLoans * lateRatio);
+        for (int i = 1; i <= activeLoans; i++) {
+            String customer = "customer" + random.nextInt(20_000);
+            LocalDate loanDate = i <= lateLoans
+                    ? today.minusDays(LOAN_DAYS + 1 + random.nextInt(60))
+                    : today.minusDays(random.nextInt(LOAN_DAYS));
+            loanRows.add(new Object[]{(long) i, customer, customer + "@mail.com", loanDate, null, (long) i});
+        }
+        jdbc.batchUpdate("insert into loan (book_id, customer, customer_email, loan_date, returned, active_book_id) "
+                + "values (?, ?, ?, ?, ?, ?)", loanRows);
+    }
+
+    /**
+     * Primeiro id de livro sem emprestimo ativo.
+     */
+    public long firstFreeBookId() {
+        return activeLoans + 1L;
+    }
+}
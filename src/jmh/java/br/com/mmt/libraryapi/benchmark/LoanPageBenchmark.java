@@ -0,0 +1,77 @@
+package br.com.mmt.libraryapi.benchmark;
+
+import br.com.mmt.libraryapi.api.dto.LoanDTO;
+import br.com.mmt.libraryapi.api.dto.LoanFilterDTO;
+import br.com.mmt.libraryapi.api.mapper.LoanMapper;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.model.repository.LoanRepository;
+import br.com.mmt.libraryapi.service.LoanService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Caminho de GET /api/loans por partes: conversão da página para DTO (como no LoanController),
+ * serialização JSON do Page&lt;LoanDTO&gt; e o fluxo completo consulta + conversão + serialização.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoanPageBenchmark {
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private LoanService service;
+    private LoanMapper loanMapper;
+    private ObjectMapper objectMapper;
+
+    private PageRequest pageRequest;
+    private Page<Loan> loans;
+    private Page<LoanDTO> loanDTOs;
+    private LoanFilterDTO filter;
+
+    @Setup
+    public void setUp(LibraryState state) {
+        service = state.getBean(LoanService.class);
+        loanMapper = state.getBean(LoanMapper.class);
+        objectMapper = state.getBean(ObjectMapper.class);
+
+        pageRequest = PageRequest.of(0, pageSize);
+        loans = state.getBean(LoanRepository.class).findAll(pageRequest);
+        loanDTOs = toDTOPage(loans);
+        filter = LoanFilterDTO.builder().isbn("1000001").customer("customer42").build();
+    }
+
+    @Benchmark
+    public Page<LoanDTO> mapPage() {
+        return toDTOPage(loans);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(loanDTOs);
+    }
+
+    @Benchmark
+    public byte[] findMapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(toDTOPage(service.find(filter, pageRequest)));
+    }
+
+    private Page<LoanDTO> toDTOPage(Page<Loan> page) {
+        List<LoanDTO> content = page.getContent().stream()
+                .map(loanMapper::toDTO)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, page.getPageable(), page.getTotalElements());
+    }
+}
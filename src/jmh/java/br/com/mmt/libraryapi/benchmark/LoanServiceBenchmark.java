@@ -0,0 +1,82 @@
+package br.com.mmt.libraryapi.benchmark;
+
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.service.LoanService;
+import br.com.mmt.libraryapi.service.impl.ActiveLoanIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoanServiceImpl.save (checagem de livro emprestado + insert) e getAllLateLoans (consulta de atrasados).
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class LoanServiceBenchmark {
+
+    static final int SAVE_BATCH = 1000;
+
+    private LoanService service;
+
+    @Setup
+    public void setUp(LibraryState state) {
+        service = state.getBean(LoanService.class);
+    }
+
+    /**
+     * Cada iteração empresta SAVE_BATCH livros livres diferentes; ao fim da iteração os emprestimos criados
+     * são devolvidos para que a próxima iteração encontre os mesmos livros disponíveis.
+     */
+    @State(Scope.Benchmark)
+    public static class SaveState {
+
+        long firstFreeBookId;
+        long nextBookId;
+        JdbcTemplate jdbc;
+        ActiveLoanIndex activeLoans;
+        Long lastSeededLoanId;
+
+        @Setup(Level.Trial)
+        public void setUp(LibraryState state) {
+            firstFreeBookId = state.firstFreeBookId();
+            jdbc = state.getBean(JdbcTemplate.class);
+            activeLoans = state.getBean(ActiveLoanIndex.class);
+            lastSeededLoanId = jdbc.queryForObject("select max(id) from loan", Long.class);
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            jdbc.update("update loan set returned = true, active_book_id = null where id > ?", lastSeededLoanId);
+            activeLoans.load();
+            nextBookId = firstFreeBookId;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = SAVE_BATCH)
+    @Measurement(iterations = 10, batchSize = SAVE_BATCH)
+    public Loan save(SaveState state) {
+        Loan loan = Loan.builder()
+                .book(Book.builder().id(state.nextBookId++).build())
+                .customer("benchmark")
+                .customerEmail("benchmark@mail.com")
+                .loanDate(LocalDate.now())
+                .build();
+        return service.save(loan);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public List<Loan> getAllLateLoans() {
+        return service.getAllLateLoans();
+    }
+}
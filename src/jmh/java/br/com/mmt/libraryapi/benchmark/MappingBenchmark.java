@@ -0,0 +1,84 @@
+package br.com.mmt.libraryapi.benchmark;
+
+import br.com.mmt.libraryapi.api.dto.BookDTO;
+import br.com.mmt.libraryapi.api.dto.LoanDTO;
+import br.com.mmt.libraryapi.api.mapper.BookMapper;
+import br.com.mmt.libraryapi.api.mapper.LoanMapper;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo por linha da conversão feita nos controllers: ModelMapper (antes) x mappers escritos à mão (depois).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    private ModelMapper modelMapper;
+    private BookMapper bookMapper;
+    private LoanMapper loanMapper;
+
+    private Book book;
+    private BookDTO bookDTO;
+    private Loan loan;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        bookMapper = new BookMapper();
+        loanMapper = new LoanMapper(bookMapper);
+
+        book = Book.builder().id(1L).title("Api Restfull").author("Moises").isbn("123").build();
+        bookDTO = BookDTO.builder().title("Api Restfull").author("Moises").isbn("123").build();
+        loan = Loan.builder()
+                .id(1L)
+                .book(book)
+                .customer("Cicrano")
+                .customerEmail("cicrano@ig.com")
+                .loanDate(LocalDate.now())
+                .build();
+    }
+
+    @Benchmark
+    public BookDTO bookToDTOModelMapper() {
+        return modelMapper.map(book, BookDTO.class);
+    }
+
+    @Benchmark
+    public BookDTO bookToDTOMapper() {
+        return bookMapper.toDTO(book);
+    }
+
+    @Benchmark
+    public Book dtoToBookModelMapper() {
+        return modelMapper.map(bookDTO, Book.class);
+    }
+
+    @Benchmark
+    public Book dtoToBookMapper() {
+        return bookMapper.toEntity(bookDTO);
+    }
+
+    @Benchmark
+    public LoanDTO loanToDTOModelMapper() {
+        //Mesmo fluxo que os controllers faziam: livro e emprestimo mapeados separadamente
+        BookDTO loanBook = modelMapper.map(loan.getBook(), BookDTO.class);
+        LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
+        loanDTO.setBook(loanBook);
+        return loanDTO;
+    }
+
+    @Benchmark
+    public LoanDTO loanToDTOMapper() {
+        return loanMapper.toDTO(loan);
+    }
+}
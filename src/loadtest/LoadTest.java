@@ -0,0 +1,124 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Teste de carga simples da api, executado como arquivo único (java LoadTest.java), sem dependências.
+ * Cada usuário virtual repete em laço fechado uma mistura de consultas ao banco: busca paginada de livros
+ * (select + count), emprestimos de um livro e busca textual. No fim imprime vazão, erros e percentis de latência.
+ *
+ * Uso: java LoadTest.java [baseUrl] [usuários] [segundos] [livros a importar]
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int books = args.length > 3 ? Integer.parseInt(args[3]) : 5000;
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newFixedThreadPool(4))
+                .build();
+        seed(client, baseUrl, books);
+
+        //Aquecimento curto antes da medição
+        run(client, baseUrl, users, Math.max(5, seconds / 6), books, new long[0]);
+        long[] latencies = new long[2_000_000];
+        Result result = run(client, baseUrl, users, seconds, books, latencies);
+
+        long[] sorted = Arrays.copyOf(latencies, (int) Math.min(result.ok.get(), latencies.length));
+        Arrays.sort(sorted);
+        System.out.printf("users=%d duration=%ds requests=%d errors=%d throughput=%.1f req/s%n",
+                users, seconds, result.ok.get() + result.errors.get(), result.errors.get(), result.ok.get() / (double) seconds);
+        System.out.printf("latency ms p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 100));
+        System.exit(0);
+    }
+
+    private static void seed(HttpClient client, String baseUrl, int books) throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < books; i++) {
+            body.append("{\"title\":\"Livro ").append(i % 100).append(" volume ").append(i)
+                    .append("\",\"author\":\"Autor ").append(i % 50)
+                    .append("\",\"isbn\":\"load-").append(i).append("\"}\n");
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/books/import"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        System.out.println("seed: " + response.statusCode() + " " + response.body());
+    }
+
+    private static Result run(HttpClient client, String baseUrl, int users, int seconds, int books, long[] latencies)
+            throws InterruptedException {
+        Result result = new Result();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService executor = Executors.newFixedThreadPool(users);
+        for (int i = 0; i < users; i++) {
+            executor.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + randomPath(books)))
+                            .timeout(Duration.ofSeconds(60))
+                            .GET()
+                            .build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        //429 do rate limit também é erro: a vazão só conta requisições atendidas
+                        if(response.statusCode() >= 500 || response.statusCode() == 429){
+                            result.errors.incrementAndGet();
+                            continue;
+                        }
+                        long index = result.ok.getAndIncrement();
+                        if(index < latencies.length){
+                            latencies[(int) index] = System.nanoTime() - start;
+                        }
+                    } catch (Exception e) {
+                        result.errors.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(seconds + 120L, TimeUnit.SECONDS);
+        return result;
+    }
+
+    private static String randomPath(int books) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (random.nextInt(3)) {
+            case 0:
+                return "/api/books?author=Autor%20" + random.nextInt(50) + "&page=" + random.nextInt(5) + "&size=20";
+            case 1:
+                return "/api/books/" + (1 + random.nextInt(books)) + "/loans?page=0&size=10";
+            default:
+                return "/api/books/search?q=livro%20" + random.nextInt(100) + "&size=20";
+        }
+    }
+
+    private static double percentile(long[] sorted, int percentile) {
+        if(sorted.length == 0){
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static class Result {
+        final AtomicLong ok = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+    }
+}
@@ -0,0 +1,31 @@
+#!/bin/bash
+# Compara a api em platform threads e em virtual threads com o mesmo teste de carga.
+# Requer o jar gerado com o perfil java21:  JAVA_HOME=<jdk 21> mvn -Pjava21 -DskipTests package
+# Uso: src/loadtest/run.sh [usuários] [segundos] [livros]
+# Sem rate limit: todos os usuários saem do mesmo IP e seriam limitados como um só cliente
+set -e
+cd "$(dirname "$0")/../.."
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+USERS=${1:-200}
+SECONDS_RUN=${2:-30}
+BOOKS=${3:-5000}
+PORT=18080
+
+# Os números só valem com o JDK que rodou o teste: registra a versão e recusa JDKs sem virtual threads
+JDK=$($JAVA -XshowSettings:properties -version 2>&1 | sed -n 's/^ *java.specification.version = //p')
+if [ "${JDK%%.*}" -lt 21 ] 2>/dev/null; then
+  echo "Requer JDK 21 ou superior (encontrado: $JDK)" >&2
+  exit 1
+fi
+echo "== JDK $($JAVA -XshowSettings:properties -version 2>&1 | sed -n 's/^ *java.runtime.version = //p')"
+
+for VIRTUAL in false true; do
+  echo "== application.threads.virtual=$VIRTUAL"
+  $JAVA -jar target/library-api-0.0.1-SNAPSHOT.jar --server.port=$PORT --application.threads.virtual=$VIRTUAL \
+    --logging.file.name=target/loadtest-$VIRTUAL.log --spring.boot.admin.client.enabled=false \
+    --application.ratelimit.enabled=false > /dev/null &
+  APP=$!
+  until curl -sf "http://localhost:$PORT/api/books?size=1" > /dev/null; do sleep 1; done
+  $JAVA src/loadtest/LoadTest.java http://localhost:$PORT "$USERS" "$SECONDS_RUN" "$BOOKS"
+  kill $APP && wait $APP || true
+done
@@ -1,11 +1,14 @@
 package br.com.mmt.libraryapi;
 
+import br.com.mmt.libraryapi.api.mapper.BookMapper;
+import br.com.mmt.libraryapi.api.mapper.LoanMapper;
+import br.com.mmt.libraryapi.config.singleflight.SingleFlightAspect;
 import br.com.mmt.libraryapi.service.EmailService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -15,11 +18,18 @@ import java.util.List;
 
 @SpringBootApplication
 @EnableScheduling
+//Cache por fora do SingleFlightAspect e da transação: um acerto no cache não abre transação nem pega conexão
+@EnableCaching(order = SingleFlightAspect.ORDER - 1)
 public class LibraryApiApplication {
 
 	@Bean
-	public ModelMapper modelMapper(){
-		return new ModelMapper();
+	public BookMapper bookMapper(){
+		return new BookMapper();
+	}
+
+	@Bean
+	public LoanMapper loanMapper(BookMapper bookMapper){
+		return new LoanMapper(bookMapper);
 	}
 
 	public static void main(String[] args) {
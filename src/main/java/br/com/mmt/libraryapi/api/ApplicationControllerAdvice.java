@@ -2,6 +2,7 @@ package br.com.mmt.libraryapi.api;
 
 import br.com.mmt.libraryapi.api.exceptions.ApiErros;
 import br.com.mmt.libraryapi.exceptions.BusinessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -9,6 +10,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 import org.springframework.web.server.ResponseStatusException;
 
 //Indica que a classe tem configurações globais para todas as APIs
@@ -22,12 +24,26 @@ public class ApplicationControllerAdvice {
         return new ApiErros(bindingResult);
     }
 
+    //Validação do @Valid nos controllers do perfil reactive
+    @ExceptionHandler(WebExchangeBindException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiErros handlerWebExchangeBindExceptions(WebExchangeBindException ex){
+        return new ApiErros(ex.getBindingResult());
+    }
+
     @ExceptionHandler(BusinessException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiErros handlerBusinessExceptions(BusinessException exception){
         return new ApiErros(exception);
     }
 
+    //Outra requisição alterou o registro (@Version) entre a leitura e a escrita
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ApiErros handlerOptimisticLockingExceptions(OptimisticLockingFailureException exception){
+        return new ApiErros("Resource was modified concurrently.");
+    }
+
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity handlerResponseStatusExceptions(ResponseStatusException exception){
         return new ResponseEntity(new ApiErros(exception), exception.getStatus());
@@ -0,0 +1,105 @@
+package br.com.mmt.libraryapi.api.cache;
+
+import br.com.mmt.libraryapi.api.mapper.BookMapper;
+import br.com.mmt.libraryapi.model.entity.Book;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * BookDTO já serializado em JSON (e em gzip, quando ligado), por id e versão do livro.
+ * Com o livro no cache do service o GET /api/books/{id} escreve os bytes direto na resposta, sem ModelMapper e sem Jackson.
+ * Uma versão diferente da guardada serializa de novo; update e delete do BookServiceImpl removem a entrada.
+ */
+@Component
+public class BookJsonCache {
+
+    private final Cache<Long, Json> entries;
+    private final BookMapper bookMapper;
+    private final ObjectMapper objectMapper;
+    private final boolean gzip;
+    private final int gzipMinBytes;
+
+    public BookJsonCache(BookMapper bookMapper,
+                         ObjectMapper objectMapper,
+                         MeterRegistry registry,
+                         @Value("${application.books.json-cache.max-bytes:33554432}") long maxBytes,
+                         @Value("${application.books.json-cache.gzip:false}") boolean gzip,
+                         @Value("${application.books.json-cache.gzip-min-bytes:1024}") int gzipMinBytes) {
+        this.bookMapper = bookMapper;
+        this.objectMapper = objectMapper;
+        this.gzip = gzip;
+        this.gzipMinBytes = gzipMinBytes;
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long id, Json json) -> json.size())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, entries, "bookJson");
+    }
+
+    /**
+     * Os bytes do livro na versão informada. Livro sem versão é serializado sem passar pelo cache.
+     */
+    public Json get(Book book) {
+        if(book.getId() == null || book.getVersion() == null){
+            return serialize(book);
+        }
+        Json cached = entries.getIfPresent(book.getId());
+        if(cached != null && Objects.equals(cached.getVersion(), book.getVersion())){
+            return cached;
+        }
+        Json json = serialize(book);
+        entries.put(book.getId(), json);
+        return json;
+    }
+
+    public void evict(Long id) {
+        if(id != null){
+            entries.invalidate(id);
+        }
+    }
+
+    private Json serialize(Book book) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(bookMapper.toDTO(book));
+            //JSON pequeno não compensa: o gzip ficaria quase do mesmo tamanho
+            return new Json(book.getVersion(), json, gzip && json.length >= gzipMinBytes ? gzip(json) : null);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Book " + book.getId() + " could not be serialized.", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @lombok.Value
+    public static class Json {
+        Long version;
+        byte[] json;
+        //Nulo quando o gzip está desligado ou o JSON é menor que gzip-min-bytes
+        byte[] gzip;
+
+        int size() {
+            return json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
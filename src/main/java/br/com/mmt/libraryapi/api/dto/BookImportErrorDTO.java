@@ -0,0 +1,16 @@
+package br.com.mmt.libraryapi.api.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportErrorDTO {
+
+    private long line;
+    private String isbn;
+    private String message;
+
+}
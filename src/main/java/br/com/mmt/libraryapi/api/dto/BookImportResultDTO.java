@@ -0,0 +1,22 @@
+package br.com.mmt.libraryapi.api.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportResultDTO {
+
+    private long processed;
+    private long imported;
+    private long failed;
+    //Limitado a application.import.max-reported-errors para manter a memória constante
+    @Builder.Default
+    private List<BookImportErrorDTO> errors = new ArrayList<>();
+
+}
@@ -0,0 +1,15 @@
+package br.com.mmt.libraryapi.api.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookLoanStatsDTO {
+
+    private Long bookId;
+    private long totalLoans;
+    private long activeLoans;
+}
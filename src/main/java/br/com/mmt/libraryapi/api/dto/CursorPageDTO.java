@@ -0,0 +1,22 @@
+package br.com.mmt.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    //Token a ser enviado em "after" para obter a próxima página; nulo na última página
+    private String next;
+
+}
@@ -0,0 +1,15 @@
+package br.com.mmt.libraryapi.api.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerLoanStatsDTO {
+
+    private String customer;
+    private long activeLoans;
+    private long overdueLoans;
+}
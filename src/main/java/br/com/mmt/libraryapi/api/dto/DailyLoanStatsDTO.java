@@ -0,0 +1,17 @@
+package br.com.mmt.libraryapi.api.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyLoanStatsDTO {
+
+    private LocalDate date;
+    private long loans;
+    private long returns;
+}
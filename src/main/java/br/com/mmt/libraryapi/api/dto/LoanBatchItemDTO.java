@@ -0,0 +1,19 @@
+package br.com.mmt.libraryapi.api.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanBatchItemDTO {
+
+    //Posição do emprestimo na lista enviada
+    private int index;
+    private String isbn;
+    //Id do emprestimo criado, ou a mensagem de erro
+    private Long id;
+    private String error;
+
+}
@@ -0,0 +1,21 @@
+package br.com.mmt.libraryapi.api.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanBatchResultDTO {
+
+    private long processed;
+    private long created;
+    private long failed;
+    @Builder.Default
+    private List<LoanBatchItemDTO> items = new ArrayList<>();
+
+}
@@ -0,0 +1,20 @@
+package br.com.mmt.libraryapi.api.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanReturnItemDTO {
+
+    public enum Status { RETURNED, NOT_FOUND, ALREADY_RETURNED }
+
+    //id ou isbn como enviado na requisição; loanId é o emprestimo encontrado
+    private Long id;
+    private String isbn;
+    private Long loanId;
+    private Status status;
+
+}
@@ -0,0 +1,21 @@
+package br.com.mmt.libraryapi.api.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanReturnRequestDTO {
+
+    //Emprestimos a devolver pelo id ou pelo isbn do livro emprestado (o emprestimo ativo do livro)
+    @Builder.Default
+    private List<Long> ids = new ArrayList<>();
+    @Builder.Default
+    private List<String> isbns = new ArrayList<>();
+
+}
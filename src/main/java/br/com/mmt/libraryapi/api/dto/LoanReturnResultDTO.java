@@ -0,0 +1,21 @@
+package br.com.mmt.libraryapi.api.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanReturnResultDTO {
+
+    private long processed;
+    private long returned;
+    private long failed;
+    @Builder.Default
+    private List<LoanReturnItemDTO> items = new ArrayList<>();
+
+}
@@ -0,0 +1,80 @@
+package br.com.mmt.libraryapi.api.etag;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * ETags fortes gerados a partir da coluna @Version das entidades: "3" é a terceira alteração do registro.
+ * Uma representação com content-coding tem ETag próprio, com o coding como sufixo: "3-gzip".
+ */
+public final class ETags {
+
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETags() {
+    }
+
+    /**
+     * @return o ETag da versão, ou nulo quando a versão não for conhecida
+     */
+    public static String of(Long version) {
+        return version == null ? null : "\"" + version + "\"";
+    }
+
+    /**
+     * @return o ETag da versão na representação com o content-coding informado; sem coding é o mesmo de {@link #of(Long)}
+     */
+    public static String of(Long version, String contentCoding) {
+        if(version == null || contentCoding == null){
+            return of(version);
+        }
+        return "\"" + version + "-" + contentCoding + "\"";
+    }
+
+    /**
+     * 200 com o ETag no header, que fica de fora quando a versão não for conhecida.
+     */
+    public static <T> ResponseEntity<T> ok(String eTag, T body) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(eTag != null){
+            response.eTag(eTag);
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Rejeita a escrita com 412 quando o If-Match informado não corresponde à versão atual.
+     * Sem If-Match a escrita segue normalmente.
+     */
+    public static void checkIfMatch(String ifMatch, Long version) {
+        if(ifMatch == null || ifMatch.trim().isEmpty()){
+            return;
+        }
+        if(!matches(ifMatch, version)){
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Resource was modified.");
+        }
+    }
+
+    static boolean matches(String ifMatch, Long version) {
+        String current = of(version);
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if(ANY.equals(tag)){
+                return true;
+            }
+            //If-Match usa comparação forte: ETags fracos nunca casam
+            if(current != null && !tag.startsWith(WEAK_PREFIX) && (current.equals(tag) || isEncodingOf(tag, current))){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //"3-gzip" é a mesma versão "3" em outro content-coding: vale para a escrita como o ETag sem sufixo
+    private static boolean isEncodingOf(String tag, String current) {
+        String prefix = current.substring(0, current.length() - 1) + "-";
+        return tag.length() > prefix.length() + 1 && tag.startsWith(prefix) && tag.endsWith("\"");
+    }
+}
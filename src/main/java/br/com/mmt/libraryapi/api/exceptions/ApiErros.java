@@ -21,6 +21,10 @@ public class ApiErros {
         errors = Arrays.asList(exception.getMessage());
     }
 
+    public ApiErros(String error) {
+        this.errors = Arrays.asList(error);
+    }
+
     public ApiErros(ResponseStatusException exception) {
         this.errors = Arrays.asList(exception.getReason());
     }
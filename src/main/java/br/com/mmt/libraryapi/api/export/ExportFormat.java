@@ -0,0 +1,71 @@
+package br.com.mmt.libraryapi.api.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Formatos de exportação. Cada linha é escrita assim que chega, sem montar a lista inteira em memória.
+ * Em CSV cada linha é um array na ordem das colunas informadas.
+ */
+public enum ExportFormat {
+
+    NDJSON(MediaType.valueOf("application/x-ndjson;charset=UTF-8")) {
+        @Override
+        public SequenceWriter writer(OutputStream out, ObjectMapper objectMapper, String... columns) throws IOException {
+            return objectMapper.writer().withRootValueSeparator("\n").writeValues(out);
+        }
+    },
+    CSV(MediaType.valueOf("text/csv;charset=UTF-8")) {
+        @Override
+        public SequenceWriter writer(OutputStream out, ObjectMapper objectMapper, String... columns) throws IOException {
+            CsvSchema.Builder schema = CsvSchema.builder().setUseHeader(true);
+            for (String column : columns) {
+                schema.addColumn(column);
+            }
+            return CSV_MAPPER.writerFor(Object[].class).with(schema.build()).writeValues(out);
+        }
+    };
+
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+
+    private final MediaType mediaType;
+
+    ExportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public abstract SequenceWriter writer(OutputStream out, ObjectMapper objectMapper, String... columns) throws IOException;
+
+    /**
+     * Monta uma linha CSV. O CsvMapper descarta nulls dentro de arrays e desalinha as colunas, por isso viram vazio.
+     */
+    public static Object[] csvRow(Object... values) {
+        for (int i = 0; i < values.length; i++) {
+            if(values[i] == null){
+                values[i] = "";
+            }
+        }
+        return values;
+    }
+
+    public static ExportFormat of(String format) {
+        for (ExportFormat value : values()) {
+            if(value.name().equalsIgnoreCase(format)){
+                return value;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid export format.");
+    }
+}
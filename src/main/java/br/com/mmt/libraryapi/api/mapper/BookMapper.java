@@ -0,0 +1,50 @@
+package br.com.mmt.libraryapi.api.mapper;
+
+import br.com.mmt.libraryapi.api.dto.BookDTO;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.reactive.BookRow;
+
+/**
+ * Conversão Book <-> BookDTO escrita à mão, sem reflexão (substitui o ModelMapper nos controllers).
+ * BookRow é a mesma conversão para os controllers do perfil reactive.
+ */
+public class BookMapper {
+
+    public Book toEntity(BookDTO dto) {
+        if(dto == null){
+            return null;
+        }
+        return Book.builder()
+                .id(dto.getId())
+                .title(dto.getTitle())
+                .author(dto.getAuthor())
+                .isbn(dto.getIsbn())
+                .build();
+    }
+
+    public BookDTO toDTO(Book book) {
+        if(book == null){
+            return null;
+        }
+        return new BookDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+    }
+
+    public BookRow toRow(BookDTO dto) {
+        if(dto == null){
+            return null;
+        }
+        return BookRow.builder()
+                .id(dto.getId())
+                .title(dto.getTitle())
+                .author(dto.getAuthor())
+                .isbn(dto.getIsbn())
+                .build();
+    }
+
+    public BookDTO toDTO(BookRow book) {
+        if(book == null){
+            return null;
+        }
+        return new BookDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+    }
+}
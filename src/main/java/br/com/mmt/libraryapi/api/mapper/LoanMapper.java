@@ -0,0 +1,44 @@
+package br.com.mmt.libraryapi.api.mapper;
+
+import br.com.mmt.libraryapi.api.dto.BookDTO;
+import br.com.mmt.libraryapi.api.dto.LoanDTO;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.model.reactive.BookRow;
+import br.com.mmt.libraryapi.model.reactive.LoanRow;
+
+/**
+ * Conversão Loan -> LoanDTO (incluindo o livro) escrita à mão, sem reflexão.
+ */
+public class LoanMapper {
+
+    private final BookMapper bookMapper;
+
+    public LoanMapper(BookMapper bookMapper) {
+        this.bookMapper = bookMapper;
+    }
+
+    public LoanDTO toDTO(Loan loan) {
+        if(loan == null){
+            return null;
+        }
+        Book book = loan.getBook();
+        BookDTO bookDTO = bookMapper.toDTO(book);
+        return new LoanDTO(loan.getId(),
+                book != null ? book.getIsbn() : null,
+                loan.getCustomer(),
+                loan.getCustomerEmail(),
+                bookDTO);
+    }
+
+    public LoanDTO toDTO(LoanRow loan, BookRow book) {
+        if(loan == null){
+            return null;
+        }
+        return new LoanDTO(loan.getId(),
+                book != null ? book.getIsbn() : null,
+                loan.getCustomer(),
+                loan.getCustomerEmail(),
+                bookMapper.toDTO(book));
+    }
+}
@@ -0,0 +1,27 @@
+package br.com.mmt.libraryapi.api.pagination;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Como o total das consultas paginadas é calculado (parâmetro "count"):
+ * EXACT conta na base a cada requisição, NONE devolve um Slice sem total
+ * e ESTIMATE usa o total do filtro mantido em cache e recontado em segundo plano.
+ */
+public enum CountMode {
+
+    EXACT,
+    NONE,
+    ESTIMATE;
+
+    public static final String DEFAULT = "exact";
+
+    public static CountMode of(String mode) {
+        for (CountMode value : values()) {
+            if(value.name().equalsIgnoreCase(mode)){
+                return value;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid count mode.");
+    }
+}
@@ -0,0 +1,65 @@
+package br.com.mmt.libraryapi.api.pagination;
+
+import br.com.mmt.libraryapi.api.dto.CursorPageDTO;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Paginação por chave (keyset): o token "after" é opaco para o cliente e carrega o último id retornado.
+ */
+public final class CursorPagination {
+
+    public static final String DEFAULT_SIZE = "20";
+    public static final int MAX_SIZE = 1000;
+
+    private static final String PREFIX = "id:";
+
+    private CursorPagination() {
+    }
+
+    public static String encode(Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return o id codificado no token, ou nulo quando o token for vazio (primeira página)
+     */
+    public static Long decode(String token) {
+        if(token == null || token.isEmpty()){
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if(!value.startsWith(PREFIX)){
+                throw new IllegalArgumentException(value);
+            }
+            return Long.valueOf(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor.");
+        }
+    }
+
+    public static int size(int requested) {
+        if(requested < 1){
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page size.");
+        }
+        return Math.min(requested, MAX_SIZE);
+    }
+
+    public static <E, D> CursorPageDTO<D> toPage(Slice<E> slice, Function<E, Long> idOf, Function<E, D> mapper) {
+        List<E> content = slice.getContent();
+        List<D> result = content.stream().map(mapper).collect(Collectors.toList());
+        String next = slice.hasNext() && !content.isEmpty()
+                ? encode(idOf.apply(content.get(content.size() - 1)))
+                : null;
+        return new CursorPageDTO<>(result, result.size(), next != null, next);
+    }
+}
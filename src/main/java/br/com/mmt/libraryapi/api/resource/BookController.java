@@ -1,45 +1,78 @@
 package br.com.mmt.libraryapi.api.resource;
 
+import br.com.mmt.libraryapi.api.cache.BookJsonCache;
 import br.com.mmt.libraryapi.api.dto.BookDTO;
+import br.com.mmt.libraryapi.api.dto.BookImportResultDTO;
+import br.com.mmt.libraryapi.api.dto.CursorPageDTO;
 import br.com.mmt.libraryapi.api.dto.LoanDTO;
+import br.com.mmt.libraryapi.api.etag.ETags;
 import br.com.mmt.libraryapi.api.exceptions.ApiErros;
+import br.com.mmt.libraryapi.api.export.ExportFormat;
+import br.com.mmt.libraryapi.api.mapper.BookMapper;
+import br.com.mmt.libraryapi.api.mapper.LoanMapper;
+import br.com.mmt.libraryapi.api.pagination.CountMode;
+import br.com.mmt.libraryapi.api.pagination.CursorPagination;
 import br.com.mmt.libraryapi.exceptions.BusinessException;
 import br.com.mmt.libraryapi.model.entity.Book;
 import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.service.BookImportService;
 import br.com.mmt.libraryapi.service.BookService;
+import br.com.mmt.libraryapi.service.ExportService;
 import br.com.mmt.libraryapi.service.LoanService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/books")
 @AllArgsConstructor
 @Api("Book API")
 @Slf4j
 public class BookController {
 
+    static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final String[] CSV_COLUMNS = {"id", "title", "author", "isbn"};
+    private static final String GZIP = "gzip";
+
     private final BookService service;
-    private final ModelMapper modelMapper;
+    private final BookMapper bookMapper;
+    private final LoanMapper loanMapper;
     private final LoanService loanService;
+    private final BookImportService importService;
+    private final ExportService exportService;
+    private final ObjectMapper objectMapper;
+    private final BookJsonCache bookJson;
 
 //    public BookController(BookService service, ModelMapper modelMapper, LoanService loanService) {
 //        this.service = service;
@@ -55,7 +88,7 @@ public class BookController {
     })
     public BookDTO create(@RequestBody @Valid BookDTO bookDTO){
         log.info("Create a book for ISBN: {} ", bookDTO.getIsbn());
-        Book entity = modelMapper.map(bookDTO, Book.class);
+        Book entity = bookMapper.toEntity(bookDTO);
 //        Book entity = Book.builder()
 //                .id(bookDTO.getId())
 //                .author(bookDTO.getAuthor())
@@ -65,7 +98,7 @@ public class BookController {
 
         entity = service.save(entity);
 
-        return modelMapper.map(entity, BookDTO.class);
+        return bookMapper.toDTO(entity);
 //                BookDTO.builder()
 //                .id(entity.getId())
 //                .author(entity.getAuthor())
@@ -74,11 +107,99 @@ public class BookController {
 //                .build();
     }
 
+    @PostMapping(value = "import", consumes = {BookController.NDJSON_VALUE, "text/csv"})
+    @ApiOperation("Import Books from a NDJSON or CSV (header: title,author,isbn) stream")
+    public BookImportResultDTO importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                           InputStream body) throws IOException {
+        BookImportService.Format format = MediaType.valueOf(NDJSON_VALUE).includes(contentType)
+                ? BookImportService.Format.NDJSON
+                : BookImportService.Format.CSV;
+        log.info("Importing books from {}", format);
+        return importService.importBooks(body, format);
+    }
+
+    @GetMapping("export")
+    @ApiOperation("Export all Books as NDJSON or CSV")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format){
+        ExportFormat exportFormat = ExportFormat.of(format);
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = exportFormat.writer(out, objectMapper, CSV_COLUMNS)) {
+                exportService.exportBooks(book -> {
+                    try {
+                        writer.write(exportFormat == ExportFormat.CSV
+                                ? ExportFormat.csvRow(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn())
+                                : bookMapper.toDTO(book));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(exportFormat.getMediaType()).body(body);
+    }
+
     @GetMapping("{id}")
-    @ApiOperation("Obtain a Book by id")
-    public BookDTO get(@PathVariable Long id){
-        return service.getById(id).map(book -> modelMapper.map(book, BookDTO.class))
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    @ApiOperation(value = "Obtain a Book by id", response = BookDTO.class)
+    @ApiResponses({
+            @ApiResponse(code = 304, message = "Book not modified since the version in If-None-Match")
+    })
+    public ResponseEntity<byte[]> get(@PathVariable Long id, WebRequest request,
+                                      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
+        Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        //O JSON já serializado da versão, sem passar pelo ModelMapper e pelo Jackson
+        BookJsonCache.Json json = bookJson.get(book);
+        boolean gzip = json.getGzip() != null && acceptsGzip(acceptEncoding);
+        //Cada encoding tem o seu ETag: o 304 só confirma a representação que o cliente já tem
+        String eTag = ETags.of(book.getVersion(), gzip ? GZIP : null);
+        //Com o livro e o JSON em cache o 304 sai sem consultar a base e sem serializar o livro
+        if(request.checkNotModified(eTag)){
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if(eTag != null){
+            response.eTag(eTag);
+        }
+        if(json.getGzip() != null){
+            response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if(gzip){
+            return response.header(HttpHeaders.CONTENT_ENCODING, GZIP).body(json.getGzip());
+        }
+        return response.body(json.getJson());
+    }
+
+    /**
+     * Negociação do Accept-Encoding: gzip (ou x-gzip) com q maior que zero, ou "*" quando gzip não aparece.
+     * Sem o header a resposta vai sem compressão.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if(acceptEncoding == null){
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim().toLowerCase(Locale.ROOT);
+                if(parameter.startsWith("q=")){
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if(GZIP.equals(name) || "x-gzip".equals(name)){
+                gzip = gzip == null ? quality : Math.max(gzip, quality);
+            } else if("*".equals(name)){
+                any = quality;
+            }
+        }
+        double quality = gzip != null ? gzip : any != null ? any : 0;
+        return quality > 0;
     }
 
     @DeleteMapping("{id}")
@@ -95,27 +216,62 @@ public class BookController {
     @PutMapping("{id}")
     @ApiOperation("Upadates a Book by id")
     @ApiResponses({
-            @ApiResponse(code = 200, message = "Book succesfully updated")
+            @ApiResponse(code = 200, message = "Book succesfully updated"),
+            @ApiResponse(code = 412, message = "Book modified since the version in If-Match")
     })
-    public BookDTO update(@PathVariable Long id, @RequestBody @Valid BookDTO dto){
+    public ResponseEntity<BookDTO> update(@PathVariable Long id, @RequestBody @Valid BookDTO dto,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
         log.info("Updating book of id: {} ", id);
-        return service.getById(id).map(book -> {
-            book.setAuthor(dto.getAuthor());
-            book.setTitle(dto.getTitle());
-            book = service.update(book);
-            return modelMapper.map(book, BookDTO.class);
-        }).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        ETags.checkIfMatch(ifMatch, book.getVersion());
+        //Cópia: o livro do getById é a instância do cache, compartilhada com as outras requisições
+        book = service.update(Book.builder()
+                .id(book.getId())
+                .isbn(book.getIsbn())
+                .version(book.getVersion())
+                .author(dto.getAuthor())
+                .title(dto.getTitle())
+                .build());
+        return ETags.ok(ETags.of(book.getVersion()), bookMapper.toDTO(book));
     }
 
     @GetMapping
-    @ApiOperation("Find Books by params")
-    public Page<BookDTO> find(BookDTO dto, Pageable pageRequest){
-        Book filter = modelMapper.map(dto, Book.class);
-        Page<Book> result = service.find(filter, pageRequest);
-        List<BookDTO> list = result.getContent()
-                .stream()
-                .map(entity -> modelMapper.map(entity, BookDTO.class))//para cada item da lista(entity) o map transforma de Book(vindo da base) para BookDTO(objeto de retorno)
-                .collect(Collectors.toList());//Converte para List(no caso o map retorna uma Stream)
+    @ApiOperation("Find Books by params; count=none returns a Slice without total, count=estimate a cached total")
+    public Slice<BookDTO> find(BookDTO dto, Pageable pageRequest,
+                               @RequestParam(defaultValue = CountMode.DEFAULT) String count){
+        Book filter = bookMapper.toEntity(dto);
+        switch (CountMode.of(count)) {
+            case NONE:
+                return service.findSlice(filter, pageRequest).map(bookMapper::toDTO);
+            case ESTIMATE:
+                return service.findEstimated(filter, pageRequest).map(bookMapper::toDTO);
+            default:
+                Page<Book> result = service.find(filter, pageRequest);
+                List<BookDTO> list = result.getContent()
+                        .stream()
+                        .map(bookMapper::toDTO)//para cada item da lista(entity) o map transforma de Book(vindo da base) para BookDTO(objeto de retorno)
+                        .collect(Collectors.toList());//Converte para List(no caso o map retorna uma Stream)
+                return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
+        }
+    }
+
+    @GetMapping(params = "after")
+    @ApiOperation("Find Books by params using a cursor, without total count")
+    public CursorPageDTO<BookDTO> findAfter(BookDTO dto,
+                                           @RequestParam String after,
+                                           @RequestParam(defaultValue = CursorPagination.DEFAULT_SIZE) int size){
+        Book filter = bookMapper.toEntity(dto);
+        Slice<Book> result = service.findAfter(filter, CursorPagination.decode(after), CursorPagination.size(size));
+        return CursorPagination.toPage(result, Book::getId, bookMapper::toDTO);
+    }
+
+    @GetMapping("search")
+    @ApiOperation("Search Books by title, author or isbn, ordered by relevance")
+    public Page<BookDTO> search(@RequestParam("q") String query, Pageable pageRequest){
+        Page<Book> result = service.search(query, pageRequest);
+        List<BookDTO> list = result.getContent().stream()
+                .map(bookMapper::toDTO)
+                .collect(Collectors.toList());
         return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
     }
 
@@ -124,19 +280,20 @@ public class BookController {
     public Page<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable){
         Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         Page<Loan> loansByBook = loanService.getLoansByBook(book, pageable);
-        List<LoanDTO> result = loansByBook.getContent().stream().map(loan -> {
-            LoanDTO loanDTO = getLoanDTO(loan);
-            return loanDTO;
-        }).collect(Collectors.toList());
+        List<LoanDTO> result = loansByBook.getContent().stream()
+                .map(loanMapper::toDTO)
+                .collect(Collectors.toList());
         return new PageImpl<LoanDTO>(result, pageable, loansByBook.getTotalElements());
     }
 
-    private LoanDTO getLoanDTO(Loan loan) {
-        Book loanBook = loan.getBook();
-        BookDTO bookDTO = modelMapper.map(loanBook, BookDTO.class);
-        LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
-        loanDTO.setBook(bookDTO);
-        return loanDTO;
+    @GetMapping(value = "{id}/loans", params = "after")
+    @ApiOperation("Find Loans by id of book using a cursor, without total count")
+    public CursorPageDTO<LoanDTO> loansByBookAfter(@PathVariable Long id,
+                                                  @RequestParam String after,
+                                                  @RequestParam(defaultValue = CursorPagination.DEFAULT_SIZE) int size){
+        Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        Slice<Loan> loansByBook = loanService.getLoansByBookAfter(book, CursorPagination.decode(after), CursorPagination.size(size));
+        return CursorPagination.toPage(loansByBook, Loan::getId, loanMapper::toDTO);
     }
 
 }
@@ -1,23 +1,43 @@
 package br.com.mmt.libraryapi.api.resource;
 
 import br.com.mmt.libraryapi.api.dto.BookDTO;
+import br.com.mmt.libraryapi.api.dto.LoanBatchResultDTO;
+import br.com.mmt.libraryapi.api.dto.CursorPageDTO;
 import br.com.mmt.libraryapi.api.dto.LoanDTO;
 import br.com.mmt.libraryapi.api.dto.LoanFilterDTO;
+import br.com.mmt.libraryapi.api.dto.LoanReturnRequestDTO;
+import br.com.mmt.libraryapi.api.dto.LoanReturnResultDTO;
 import br.com.mmt.libraryapi.api.dto.ReturnedLoanDTO;
+import br.com.mmt.libraryapi.api.etag.ETags;
+import br.com.mmt.libraryapi.api.export.ExportFormat;
+import br.com.mmt.libraryapi.api.mapper.LoanMapper;
+import br.com.mmt.libraryapi.api.pagination.CountMode;
+import br.com.mmt.libraryapi.api.pagination.CursorPagination;
 import br.com.mmt.libraryapi.model.entity.Book;
 import br.com.mmt.libraryapi.model.entity.Loan;
 import br.com.mmt.libraryapi.service.BookService;
+import br.com.mmt.libraryapi.service.ExportService;
+import br.com.mmt.libraryapi.service.LoanBatchService;
 import br.com.mmt.libraryapi.service.LoanService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -25,15 +45,24 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/loans")
 @RequiredArgsConstructor
 public class LoanController {
 
+    private static final String[] CSV_COLUMNS = {"id", "isbn", "customer", "customerEmail", "bookId", "title", "author"};
+
     private final LoanService loanService;
 
     private final BookService bookService;
 
-    private final ModelMapper modelMapper;
+    private final LoanMapper loanMapper;
+
+    private final ExportService exportService;
+
+    private final LoanBatchService loanBatchService;
+
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -44,34 +73,93 @@ public class LoanController {
         Loan loan = Loan.builder()
                 .book(bookByIsbn)
                 .customer(dto.getCustomer())
+                .customerEmail(dto.getCustomerEmail())
                 .loanDate(LocalDate.now())
                 .build();
         Loan savedLoan = loanService.save(loan);
         return savedLoan.getId();
     }
 
+    @PostMapping("batch")
+    public LoanBatchResultDTO createBatch(@RequestBody List<LoanDTO> dtos){
+        return loanBatchService.createLoans(dtos);
+    }
+
+    @GetMapping("{id}")
+    public ResponseEntity<LoanDTO> get(@PathVariable Long id, WebRequest request){
+        Loan loan = loanService.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        String eTag = ETags.of(loan.getVersion());
+        if(request.checkNotModified(eTag)){
+            return null;
+        }
+        return ETags.ok(eTag, loanMapper.toDTO(loan));
+    }
+
     @PatchMapping("{id}")
-    public void returnedBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto){
+    public void returnedBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto,
+                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
         Loan loan = loanService.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        ETags.checkIfMatch(ifMatch, loan.getVersion());
         loan.setReturned(dto.getReturned());
         loanService.update(loan);
     }
 
+    @PostMapping("returns")
+    public LoanReturnResultDTO returnBooks(@RequestBody LoanReturnRequestDTO dto){
+        return loanBatchService.returnLoans(dto);
+    }
+
     @GetMapping
-    public Page<LoanDTO> find(LoanFilterDTO filter, Pageable page){
+    public Slice<LoanDTO> find(LoanFilterDTO filter, Pageable page,
+                               @RequestParam(defaultValue = CountMode.DEFAULT) String count){
+        switch (CountMode.of(count)) {
+            case NONE:
+                return loanService.findSlice(filter, page).map(loanMapper::toDTO);
+            case ESTIMATE:
+                return loanService.findEstimated(filter, page).map(loanMapper::toDTO);
+            default:
+                Page<Loan> result = loanService.find(filter, page);
 
-        Page<Loan> result = loanService.find(filter, page);
+                List<LoanDTO> loanDTOS = result.getContent().stream()
+                        .map(loanMapper::toDTO)
+                        .collect(Collectors.toList());
 
-        List<LoanDTO> loanDTOS = result.getContent().stream().map(loan -> {
-            Book book = loan.getBook();
-            BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-            LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
-            loanDTO.setBook(bookDTO);
-            return loanDTO;
-        }).collect(Collectors.toList());
+                return new PageImpl<LoanDTO>(loanDTOS, page, result.getTotalElements());
+        }
+    }
 
-        return new PageImpl<LoanDTO>(loanDTOS, page, result.getTotalElements());
+    @GetMapping(params = "after")
+    public CursorPageDTO<LoanDTO> findAfter(LoanFilterDTO filter,
+                                           @RequestParam String after,
+                                           @RequestParam(defaultValue = CursorPagination.DEFAULT_SIZE) int size){
+        Slice<Loan> result = loanService.findAfter(filter, CursorPagination.decode(after), CursorPagination.size(size));
+        return CursorPagination.toPage(result, Loan::getId, loanMapper::toDTO);
     }
 
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> export(LoanFilterDTO filter,
+                                                        @RequestParam(defaultValue = "ndjson") String format){
+        ExportFormat exportFormat = ExportFormat.of(format);
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = exportFormat.writer(out, objectMapper, CSV_COLUMNS)) {
+                exportService.exportLoans(filter, loan -> write(writer, exportFormat, loanMapper.toDTO(loan)));
+            }
+        };
+        return ResponseEntity.ok().contentType(exportFormat.getMediaType()).body(body);
+    }
+
+    private void write(SequenceWriter writer, ExportFormat format, LoanDTO loan) {
+        try {
+            if(format == ExportFormat.CSV){
+                BookDTO book = loan.getBook();
+                writer.write(ExportFormat.csvRow(loan.getId(), loan.getIsbn(), loan.getCustomer(), loan.getCustomerEmail(),
+                        book.getId(), book.getTitle(), book.getAuthor()));
+            } else {
+                writer.write(loan);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
 }
@@ -0,0 +1,79 @@
+package br.com.mmt.libraryapi.api.resource;
+
+import br.com.mmt.libraryapi.api.dto.BookDTO;
+import br.com.mmt.libraryapi.api.dto.LoanDTO;
+import br.com.mmt.libraryapi.api.mapper.BookMapper;
+import br.com.mmt.libraryapi.api.mapper.LoanMapper;
+import br.com.mmt.libraryapi.model.reactive.BookRow;
+import br.com.mmt.libraryapi.service.ReactiveBookService;
+import br.com.mmt.libraryapi.service.ReactiveLoanService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+
+/**
+ * Mesmos endpoints principais do BookController sobre WebFlux e R2DBC (perfil reactive).
+ */
+@RestController
+@RequestMapping("/api/books")
+@Profile("reactive")
+@AllArgsConstructor
+@Slf4j
+public class ReactiveBookController {
+
+    private final ReactiveBookService service;
+    private final ReactiveLoanService loanService;
+    private final BookMapper bookMapper;
+    private final LoanMapper loanMapper;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<BookDTO> create(@RequestBody @Valid BookDTO bookDTO){
+        log.info("Create a book for ISBN: {} ", bookDTO.getIsbn());
+        return service.save(bookMapper.toRow(bookDTO)).map(bookMapper::toDTO);
+    }
+
+    @GetMapping("{id}")
+    public Mono<BookDTO> get(@PathVariable Long id){
+        return getBook(id).map(bookMapper::toDTO);
+    }
+
+    @DeleteMapping("{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> delete(@PathVariable Long id){
+        return getBook(id).flatMap(service::delete);
+    }
+
+    @PutMapping("{id}")
+    public Mono<BookDTO> update(@PathVariable Long id, @RequestBody @Valid BookDTO dto){
+        log.info("Updating book of id: {} ", id);
+        return getBook(id).flatMap(book -> {
+            book.setAuthor(dto.getAuthor());
+            book.setTitle(dto.getTitle());
+            return service.update(book);
+        }).map(bookMapper::toDTO);
+    }
+
+    @GetMapping
+    public Mono<Page<BookDTO>> find(BookDTO dto, Pageable pageRequest){
+        return service.find(bookMapper.toRow(dto), pageRequest).map(page -> page.map(bookMapper::toDTO));
+    }
+
+    @GetMapping("{id}/loans")
+    public Mono<Page<LoanDTO>> loansByBook(@PathVariable Long id, Pageable pageable){
+        return getBook(id).flatMap(book -> loanService.getLoansByBook(book.getId(), pageable)
+                .map(page -> page.map(loan -> loanMapper.toDTO(loan, book))));
+    }
+
+    private Mono<BookRow> getBook(Long id){
+        return service.getById(id).switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+}
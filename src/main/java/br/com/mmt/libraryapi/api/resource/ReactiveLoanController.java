@@ -0,0 +1,76 @@
+package br.com.mmt.libraryapi.api.resource;
+
+import br.com.mmt.libraryapi.api.dto.LoanDTO;
+import br.com.mmt.libraryapi.api.dto.LoanFilterDTO;
+import br.com.mmt.libraryapi.api.dto.ReturnedLoanDTO;
+import br.com.mmt.libraryapi.api.mapper.LoanMapper;
+import br.com.mmt.libraryapi.model.reactive.BookRow;
+import br.com.mmt.libraryapi.model.reactive.LoanRow;
+import br.com.mmt.libraryapi.service.ReactiveBookService;
+import br.com.mmt.libraryapi.service.ReactiveLoanService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Mesmos endpoints principais do LoanController sobre WebFlux e R2DBC (perfil reactive).
+ */
+@RestController
+@RequestMapping("/api/loans")
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveLoanController {
+
+    private final ReactiveLoanService loanService;
+
+    private final ReactiveBookService bookService;
+
+    private final LoanMapper loanMapper;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Long> create(@RequestBody LoanDTO dto){
+        return bookService.getBookByIsbn(dto.getIsbn())
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book not found for passed isbn.")))
+                .flatMap(book -> loanService.save(LoanRow.builder()
+                        .bookId(book.getId())
+                        .customer(dto.getCustomer())
+                        .customerEmail(dto.getCustomerEmail())
+                        .loanDate(LocalDate.now())
+                        .build()))
+                .map(LoanRow::getId);
+    }
+
+    @PatchMapping("{id}")
+    public Mono<Void> returnedBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto){
+        return loanService.getById(id)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)))
+                .flatMap(loan -> {
+                    loan.setReturned(dto.getReturned());
+                    return loanService.update(loan);
+                })
+                .then();
+    }
+
+    @GetMapping
+    public Mono<Page<LoanDTO>> find(LoanFilterDTO filter, Pageable page){
+        return loanService.find(filter, page).flatMap(loans -> {
+            //Os livros da página são lidos numa única consulta
+            Set<Long> bookIds = loans.stream().map(LoanRow::getBookId).collect(Collectors.toSet());
+            return bookService.getByIds(bookIds)
+                    .collectMap(BookRow::getId, Function.identity())
+                    .map(books -> loans.map(loan -> loanMapper.toDTO(loan, books.get(loan.getBookId()))));
+        });
+    }
+
+}
@@ -0,0 +1,51 @@
+package br.com.mmt.libraryapi.api.resource;
+
+import br.com.mmt.libraryapi.api.dto.BookLoanStatsDTO;
+import br.com.mmt.libraryapi.api.dto.CustomerLoanStatsDTO;
+import br.com.mmt.libraryapi.api.dto.DailyLoanStatsDTO;
+import br.com.mmt.libraryapi.service.BookService;
+import br.com.mmt.libraryapi.service.LoanStatisticsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Estatísticas de emprestimos para os dashboards, lidas das tabelas de resumo.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+public class StatsController {
+
+    private static final int DEFAULT_DAILY_PERIOD_DAYS = 30;
+
+    private final LoanStatisticsService statisticsService;
+
+    private final BookService bookService;
+
+    @GetMapping("books/{id}")
+    public BookLoanStatsDTO bookStats(@PathVariable Long id){
+        bookService.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        return statisticsService.getBookStats(id);
+    }
+
+    @GetMapping("customers/{customer}")
+    public CustomerLoanStatsDTO customerStats(@PathVariable String customer){
+        return statisticsService.getCustomerStats(customer);
+    }
+
+    @GetMapping("daily")
+    public List<DailyLoanStatsDTO> dailyStats(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        LocalDate end = to == null ? LocalDate.now() : to;
+        LocalDate start = from == null ? end.minusDays(DEFAULT_DAILY_PERIOD_DAYS - 1) : from;
+        return statisticsService.getDailyStats(start, end);
+    }
+}
@@ -0,0 +1,20 @@
+package br.com.mmt.libraryapi.config.datasource;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Leitura em transação read-only que pode ser atendida por um replica quando o roteamento está ativo.
+ * Só vale para leituras que toleram o atraso da replicação: consultas de quem vai gravar em seguida ficam no primário.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Transactional(readOnly = true)
+public @interface ReadFromReplica {
+}
@@ -0,0 +1,23 @@
+package br.com.mmt.libraryapi.config.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Ativa o ReplicaReadContext durante os métodos @ReadFromReplica.
+ * A conexão só é obtida no primeiro comando (LazyConnectionDataSourceProxy), então a ordem em relação à transação não importa.
+ */
+@Aspect
+public class ReadFromReplicaAspect {
+
+    @Around("@annotation(br.com.mmt.libraryapi.config.datasource.ReadFromReplica)")
+    public Object readFromReplica(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean previous = ReplicaReadContext.enter();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReplicaReadContext.restore(previous);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package br.com.mmt.libraryapi.config.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envia as transações read-only dos métodos @ReadFromReplica aos replicas em round-robin; todo o resto vai ao primário.
+ * Um replica que falha ao entregar conexão sai do rodízio até a próxima verificação de saúde bem sucedida,
+ * e sem replica saudável a leitura cai no primário.
+ * Deve ficar atrás de um LazyConnectionDataSourceProxy: a transação só é marcada read-only depois de pedir a conexão.
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    static final String PRIMARY = "primary";
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final List<String> replicaNames;
+    private final Set<String> unhealthy = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.replicaNames = new ArrayList<>(replicas.keySet());
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if(!ReplicaReadContext.isActive() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()){
+            return PRIMARY;
+        }
+        for (int i = 0; i < replicaNames.size(); i++) {
+            String name = replicaNames.get(Math.floorMod(next.getAndIncrement(), replicaNames.size()));
+            if(!unhealthy.contains(name)){
+                return name;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        //Cada falha tira um replica do rodízio, então no pior caso todos são tentados antes do primário
+        for (int attempt = 0; attempt < replicaNames.size(); attempt++) {
+            Object name = determineCurrentLookupKey();
+            if(PRIMARY.equals(name)){
+                break;
+            }
+            try {
+                return replicas.get(name).getConnection();
+            } catch (SQLException e) {
+                markUnhealthy((String) name, e);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * Valida uma conexão de cada replica, devolvendo ao rodízio os que voltaram.
+     */
+    @Scheduled(fixedDelayString = "${application.datasource.replicas.health-check-interval-ms:5000}")
+    public void checkReplicas() {
+        replicas.forEach((name, replica) -> {
+            try (Connection connection = replica.getConnection()) {
+                if(!connection.isValid(VALIDATION_TIMEOUT_SECONDS)){
+                    markUnhealthy(name, null);
+                } else if(unhealthy.remove(name)){
+                    log.info("Replica {} is healthy again", name);
+                }
+            } catch (SQLException e) {
+                markUnhealthy(name, e);
+            }
+        });
+    }
+
+    public int healthyReplicas() {
+        return replicaNames.size() - unhealthy.size();
+    }
+
+    private void markUnhealthy(String name, SQLException cause) {
+        if(unhealthy.add(name)){
+            log.warn("Replica {} removed from read routing: {}", name, cause == null ? "invalid connection" : cause.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (DataSource replica : replicas.values()) {
+            if(replica instanceof AutoCloseable){
+                ((AutoCloseable) replica).close();
+            }
+        }
+    }
+}
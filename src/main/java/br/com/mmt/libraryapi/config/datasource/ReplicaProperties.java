@@ -0,0 +1,36 @@
+package br.com.mmt.libraryapi.config.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replicas de leitura (application.datasource.replicas.*). O pool de cada replica segue os padrões do Hikari.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("application.datasource.replicas")
+public class ReplicaProperties {
+
+    private boolean enabled;
+
+    private long healthCheckIntervalMs = 5000;
+
+    private List<Node> nodes = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Node {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,34 @@
+package br.com.mmt.libraryapi.config.datasource;
+
+/**
+ * Marca a thread que está executando um método @ReadFromReplica.
+ * As transações read-only abertas pelos repositórios fora desses métodos continuam no primário.
+ */
+public final class ReplicaReadContext {
+
+    private static final ThreadLocal<Boolean> ACTIVE = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private ReplicaReadContext() {
+    }
+
+    public static boolean isActive() {
+        return ACTIVE.get();
+    }
+
+    /**
+     * Ativa a marca e devolve o valor anterior, a ser passado ao restore.
+     */
+    public static boolean enter() {
+        boolean previous = ACTIVE.get();
+        ACTIVE.set(Boolean.TRUE);
+        return previous;
+    }
+
+    public static void restore(boolean previous) {
+        if(previous){
+            ACTIVE.set(Boolean.TRUE);
+        } else {
+            ACTIVE.remove();
+        }
+    }
+}
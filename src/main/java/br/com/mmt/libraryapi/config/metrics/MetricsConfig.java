@@ -0,0 +1,22 @@
+package br.com.mmt.libraryapi.config.metrics;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Habilita o @Timed nos services. Os timers recebem as tags class e method do TimedAspect.
+ */
+@Configuration
+public class MetricsConfig {
+
+    public static final String SERVICE_TIMER = "library.service";
+
+    public static final String BUSINESS_REJECTIONS = "library.business.rejections";
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry){
+        return new TimedAspect(registry);
+    }
+}
@@ -0,0 +1,48 @@
+package br.com.mmt.libraryapi.config.ratelimit;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * /actuator/ratelimit: limites por grupo e os clientes mais limitados. As chaves de api aparecem só pelo início.
+ */
+@Endpoint(id = "ratelimit")
+public class RateLimitEndpoint {
+
+    private static final int MAX_CLIENTS = 50;
+    private static final int KEY_PREFIX = 4;
+
+    private final RateLimiter limiter;
+    private final RateLimitProperties properties;
+
+    public RateLimitEndpoint(RateLimiter limiter, RateLimitProperties properties) {
+        this.limiter = limiter;
+        this.properties = properties;
+    }
+
+    @ReadOperation
+    public Map<String, Object> rateLimit() {
+        List<RateLimiter.ClientStats> throttled = limiter.mostThrottled(MAX_CLIENTS).stream()
+                .map(stats -> new RateLimiter.ClientStats(stats.getGroup(), mask(stats.getClient()),
+                        stats.getAllowed(), stats.getThrottled()))
+                .collect(Collectors.toList());
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("groups", properties.getGroups());
+        result.put("clients", limiter.clients());
+        result.put("throttled", throttled);
+        return result;
+    }
+
+    static String mask(String client) {
+        if(!client.startsWith("key:")){
+            return client;
+        }
+        String key = client.substring("key:".length());
+        return "key:" + key.substring(0, Math.min(KEY_PREFIX, key.length())) + "***";
+    }
+}
@@ -0,0 +1,83 @@
+package br.com.mmt.libraryapi.config.ratelimit;
+
+import br.com.mmt.libraryapi.api.exceptions.ApiErros;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limita as requisições por cliente (chave de api configurada ou IP) e grupo de endpoints:
+ * search (consultas de livros e emprestimos), loans (criação de emprestimos) e writes (demais escritas).
+ * Acima do limite responde 429 com Retry-After, antes de chegar no controller.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public static final String SEARCH = "search";
+    public static final String LOANS = "loans";
+    public static final String WRITES = "writes";
+
+    private static final String TOO_MANY_REQUESTS = "Too many requests.";
+
+    private final RateLimiter limiter;
+    private final String clientHeader;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(RateLimiter limiter, String clientHeader, ObjectMapper objectMapper) {
+        this.limiter = limiter;
+        this.clientHeader = clientHeader;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String group = group(request);
+        long wait = group == null ? 0 : limiter.tryAcquire(group, client(request));
+        if(wait == 0){
+            chain.doFilter(request, response);
+            return;
+        }
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        //Retry-After em segundos inteiros, arredondado para cima
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ApiErros(TOO_MANY_REQUESTS));
+    }
+
+    static String group(HttpServletRequest request) {
+        //Mesmo caminho que o Spring MVC usa no mapeamento: sem ";params", com "//" reduzido e sem a barra final
+        String path = UrlPathHelper.defaultInstance.getLookupPathForRequest(request);
+        if(path.length() > 1 && path.endsWith("/")){
+            path = path.substring(0, path.length() - 1);
+        }
+        if(!path.startsWith("/api/")){
+            return null;
+        }
+        if(HttpMethod.GET.matches(request.getMethod())){
+            boolean search = path.equals("/api/books") || path.equals("/api/books/search") || path.equals("/api/loans");
+            return search ? SEARCH : null;
+        }
+        if(HttpMethod.POST.matches(request.getMethod()) && (path.equals("/api/loans") || path.equals("/api/loans/batch"))){
+            return LOANS;
+        }
+        boolean write = HttpMethod.POST.matches(request.getMethod()) || HttpMethod.PUT.matches(request.getMethod())
+                || HttpMethod.PATCH.matches(request.getMethod()) || HttpMethod.DELETE.matches(request.getMethod());
+        return write ? WRITES : null;
+    }
+
+    private String client(HttpServletRequest request) {
+        //Atrás de proxy o IP real depende de server.forward-headers-strategy
+        return limiter.client(request.getRemoteAddr(), request.getHeader(clientHeader));
+    }
+}
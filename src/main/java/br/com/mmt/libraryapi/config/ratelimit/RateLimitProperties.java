@@ -0,0 +1,46 @@
+package br.com.mmt.libraryapi.config.ratelimit;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Limite de requisições por cliente (application.ratelimit.*). Um grupo sem limite configurado não é limitado.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("application.ratelimit")
+public class RateLimitProperties {
+
+    private boolean enabled;
+
+    //Header com a chave do integrador; sem ele, ou com uma chave fora de apiKeys, o cliente é o IP de origem
+    private String clientHeader = "X-API-Key";
+
+    private Set<String> apiKeys = new HashSet<>();
+
+    //Chaves diferentes aceitas de um mesmo IP; as demais caem no bucket do IP
+    private int maxKeysPerIp = 10;
+
+    //Buckets em memória: os clientes menos usados saem primeiro ao passar do máximo
+    private long maxClients = 100000;
+
+    private long idleExpireMs = 600000;
+
+    private Map<String, Limit> groups = new LinkedHashMap<>();
+
+    @Getter
+    @Setter
+    public static class Limit {
+
+        //Rajada máxima aceita de uma vez
+        private int capacity;
+
+        private double refillPerSecond;
+    }
+}
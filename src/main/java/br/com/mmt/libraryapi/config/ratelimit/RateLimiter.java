@@ -0,0 +1,119 @@
+package br.com.mmt.libraryapi.config.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Um TokenBucket por (grupo, cliente), guardados num cache limitado: memória fixa mesmo com muitos IPs distintos.
+ * Um cliente que sai do cache volta com o bucket cheio; o expire-after-access é maior que o tempo de reposição
+ * de um bucket vazio, então isso só acontece com quem já estaria liberado.
+ */
+public class RateLimiter {
+
+    private final Map<String, RateLimitProperties.Limit> limits;
+    private final Set<String> apiKeys;
+    private final int maxKeysPerIp;
+    private final Cache<BucketKey, TokenBucket> buckets;
+    private final Cache<String, Set<String>> keysByIp;
+    private final Map<String, Counter> throttledByGroup = new HashMap<>();
+    private final LongSupplier clock;
+
+    public RateLimiter(RateLimitProperties properties, MeterRegistry registry, LongSupplier clock) {
+        this.limits = properties.getGroups();
+        this.apiKeys = properties.getApiKeys();
+        this.maxKeysPerIp = properties.getMaxKeysPerIp();
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxClients())
+                .expireAfterAccess(Duration.ofMillis(properties.getIdleExpireMs()))
+                .build();
+        this.keysByIp = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxClients())
+                .expireAfterAccess(Duration.ofMillis(properties.getIdleExpireMs()))
+                .build();
+        limits.keySet().forEach(group -> throttledByGroup.put(group,
+                registry.counter("library.ratelimit.throttled", "group", group)));
+        Gauge.builder("library.ratelimit.clients", buckets, Cache::estimatedSize)
+                .description("Buckets de clientes em memória")
+                .register(registry);
+    }
+
+    /**
+     * Cliente do bucket: a chave de api quando ela está entre as configuradas e o IP ainda não usou mais que
+     * maxKeysPerIp chaves; senão o IP. Uma chave inventada a cada requisição não ganha um bucket cheio.
+     */
+    public String client(String ip, String key) {
+        if(key == null || !apiKeys.contains(key)){
+            return "ip:" + ip;
+        }
+        Set<String> keys = keysByIp.get(ip, address -> new HashSet<>());
+        synchronized (keys) {
+            if(keys.contains(key) || (keys.size() < maxKeysPerIp && keys.add(key))){
+                return "key:" + key;
+            }
+        }
+        return "ip:" + ip;
+    }
+
+    /**
+     * Consome um token do cliente no grupo. Retorna 0 quando a requisição pode seguir, ou os nanos até o próximo token.
+     */
+    public long tryAcquire(String group, String client) {
+        RateLimitProperties.Limit limit = limits.get(group);
+        if(limit == null){
+            return 0;
+        }
+        TokenBucket bucket = buckets.get(new BucketKey(group, client),
+                key -> new TokenBucket(limit.getCapacity(), limit.getRefillPerSecond()));
+        long wait = bucket.tryAcquire(clock.getAsLong());
+        if(wait > 0){
+            throttledByGroup.get(group).increment();
+        }
+        return wait;
+    }
+
+    /**
+     * Clientes com mais requisições recusadas, para o endpoint do actuator.
+     */
+    public List<ClientStats> mostThrottled(int max) {
+        return buckets.asMap().entrySet().stream()
+                .filter(entry -> entry.getValue().throttled() > 0)
+                .map(entry -> new ClientStats(entry.getKey().getGroup(), entry.getKey().getClient(),
+                        entry.getValue().allowed(), entry.getValue().throttled()))
+                .sorted(Comparator.comparingLong(ClientStats::getThrottled).reversed())
+                .limit(max)
+                .collect(Collectors.toList());
+    }
+
+    public long clients() {
+        return buckets.estimatedSize();
+    }
+
+    @Value
+    private static class BucketKey {
+        String group;
+        String client;
+    }
+
+    @Value
+    public static class ClientStats {
+        String group;
+        String client;
+        long allowed;
+        long throttled;
+    }
+}
@@ -0,0 +1,49 @@
+package br.com.mmt.libraryapi.config.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket sem lock, no formato GCRA: o estado é um único instante (o momento em que o bucket estaria cheio
+ * de novo se nenhuma outra requisição chegasse), atualizado por compare-and-set.
+ * Aceita capacity requisições de uma vez e repõe uma a cada intervalNanos.
+ */
+class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong allowed = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    TokenBucket(int capacity, double refillPerSecond) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / refillPerSecond));
+        this.toleranceNanos = intervalNanos * capacity;
+    }
+
+    /**
+     * Consome um token. Retorna 0 quando a requisição é aceita, ou quantos nanos faltam para o próximo token.
+     */
+    long tryAcquire(long now) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long wait = next - now - toleranceNanos;
+            if(wait > 0){
+                throttled.incrementAndGet();
+                return wait;
+            }
+            if(theoreticalArrival.compareAndSet(current, next)){
+                allowed.incrementAndGet();
+                return 0;
+            }
+        }
+    }
+
+    long allowed() {
+        return allowed.get();
+    }
+
+    long throttled() {
+        return throttled.get();
+    }
+}
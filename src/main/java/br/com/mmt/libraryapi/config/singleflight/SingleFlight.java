@@ -0,0 +1,24 @@
+package br.com.mmt.libraryapi.config.singleflight;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Leitura em que chamadas concorrentes com os mesmos argumentos compartilham uma única execução e o seu resultado.
+ * Os argumentos formam a chave, então precisam de equals e hashCode.
+ * Só para leituras: quem está dentro de uma transação executa sozinho, para enxergar as próprias escritas.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SingleFlight {
+
+    /**
+     * Espera máxima pelo resultado da execução em andamento, depois da qual a chamada executa sozinha.
+     * Zero usa application.singleflight.timeout-ms.
+     */
+    long timeoutMs() default 0;
+}
@@ -0,0 +1,99 @@
+package br.com.mmt.libraryapi.config.singleflight;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Executa os métodos @SingleFlight uma vez por chave (método e argumentos) entre as chamadas concorrentes:
+ * a primeira consulta a base e as outras esperam o mesmo resultado, ou a mesma exceção.
+ * Fica fora da transação, para que quem espera não segure uma conexão do pool, e dentro do cache,
+ * para que um acerto no cache não passe por aqui.
+ */
+@Aspect
+public class SingleFlightAspect implements Ordered {
+
+    //Entre o cache (ver @EnableCaching) e a transação, que fica com a ordem padrão LOWEST_PRECEDENCE
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 1;
+
+    static final String CALLS = "library.singleflight.calls";
+
+    private final ConcurrentHashMap<List<Object>, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+    private final long defaultTimeoutMs;
+
+    public SingleFlightAspect(MeterRegistry registry, long defaultTimeoutMs) {
+        this.registry = registry;
+        this.defaultTimeoutMs = defaultTimeoutMs;
+        Gauge.builder("library.singleflight.inflight", flights, ConcurrentHashMap::size)
+                .description("Chaves com uma execução em andamento")
+                .register(registry);
+    }
+
+    @Around("@annotation(singleFlight)")
+    public Object coalesce(ProceedingJoinPoint joinPoint, SingleFlight singleFlight) throws Throwable {
+        if(TransactionSynchronizationManager.isActualTransactionActive()){
+            return joinPoint.proceed();
+        }
+        String method = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+        List<Object> key = Arrays.asList(method, Arrays.asList(joinPoint.getArgs()));
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> current = flights.putIfAbsent(key, flight);
+        if(current == null){
+            return lead(joinPoint, key, flight, method);
+        }
+        long timeoutMs = singleFlight.timeoutMs() > 0 ? singleFlight.timeoutMs() : defaultTimeoutMs;
+        try {
+            Object result = current.get(timeoutMs, TimeUnit.MILLISECONDS);
+            count(method, "coalesced");
+            return result;
+        } catch (ExecutionException e) {
+            count(method, "coalesced");
+            throw e.getCause();
+        } catch (TimeoutException e) {
+            //Execução em andamento demorando demais: não deixa todos presos nela
+            count(method, "timeout");
+            return joinPoint.proceed();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    private Object lead(ProceedingJoinPoint joinPoint, List<Object> key, CompletableFuture<Object> flight, String method)
+            throws Throwable {
+        count(method, "leader");
+        try {
+            Object result = joinPoint.proceed();
+            flight.complete(result);
+            return result;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            //Chamadas que chegarem depois daqui consultam de novo: o resultado não fica guardado
+            flights.remove(key, flight);
+        }
+    }
+
+    private void count(String method, String outcome) {
+        registry.counter(CALLS, "method", method, "outcome", outcome).increment();
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
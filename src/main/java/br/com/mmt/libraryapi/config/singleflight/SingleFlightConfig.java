@@ -0,0 +1,19 @@
+package br.com.mmt.libraryapi.config.singleflight;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registra o SingleFlightAspect usado pelos métodos @SingleFlight dos services.
+ */
+@Configuration
+public class SingleFlightConfig {
+
+    @Bean
+    public SingleFlightAspect singleFlightAspect(MeterRegistry registry,
+                                                 @Value("${application.singleflight.timeout-ms:2000}") long timeoutMs) {
+        return new SingleFlightAspect(registry, timeoutMs);
+    }
+}
@@ -21,6 +21,9 @@ public class Book {
     private String title;
     private String author;
     private String isbn;
+    //Incrementada a cada alteração; origem do ETag e do controle de concorrência otimista
+    @Version
+    private Long version;
     @OneToMany(mappedBy = "book", fetch = FetchType.LAZY)
     private List<Loan> loans;
 
@@ -0,0 +1,34 @@
+package br.com.mmt.libraryapi.model.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Checkpoint do envio de emails de emprestimos atrasados: um registro por dia de execução.
+ * Guarda o último customer já notificado para que uma execução interrompida continue de onde parou.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+@Entity
+@Table(name = "late_loan_notification_run")
+public class LateLoanNotificationRun {
+
+    @Id
+    @Column(name = "run_date")
+    private LocalDate runDate;
+
+    @Column(name = "last_customer_email")
+    private String lastCustomerEmail;
+
+    @Column(name = "notified_customers")
+    private long notifiedCustomers;
+
+    @Column
+    private boolean finished;
+
+}
@@ -17,7 +17,8 @@ public class Loan {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    //Lazy: as consultas que precisam do livro fazem join fetch
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn
     private Book book;
 
@@ -33,4 +34,18 @@ public class Loan {
     @Column
     private Boolean returned;
 
+    //Preenchido somente enquanto o emprestimo está ativo; a constraint unique impede dois emprestimos ativos do mesmo livro
+    @Column(name = "active_book_id", unique = true)
+    private Long activeBookId;
+
+    @Version
+    private Long version;
+
+    @PrePersist
+    @PreUpdate
+    public void updateActiveBookId() {
+        boolean active = returned == null || !returned;
+        activeBookId = active && book != null ? book.getId() : null;
+    }
+
 }
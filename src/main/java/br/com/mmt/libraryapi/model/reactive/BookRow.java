@@ -0,0 +1,29 @@
+package br.com.mmt.libraryapi.model.reactive;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * Linha da tabela book lida pelo R2DBC (perfil reactive). A tabela continua sendo a da entidade Book.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("book")
+public class BookRow {
+
+    @Id
+    private Long id;
+    private String title;
+    private String author;
+    private String isbn;
+    @Version
+    private Long version;
+
+}
@@ -0,0 +1,11 @@
+package br.com.mmt.libraryapi.model.reactive;
+
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Mono;
+
+public interface BookRowRepository extends R2dbcRepository<BookRow, Long>, BookRowRepositoryCustom {
+
+    Mono<Boolean> existsByIsbn(String isbn);
+
+    Mono<BookRow> findByIsbn(String isbn);
+}
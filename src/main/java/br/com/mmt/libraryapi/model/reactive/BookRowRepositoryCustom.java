@@ -0,0 +1,13 @@
+package br.com.mmt.libraryapi.model.reactive;
+
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+
+public interface BookRowRepositoryCustom {
+
+    /**
+     * Busca por Example com limit/offset da página (o R2dbcRepository só aceita Sort com Example).
+     */
+    Flux<BookRow> findAll(Example<BookRow> example, Pageable pageable);
+}
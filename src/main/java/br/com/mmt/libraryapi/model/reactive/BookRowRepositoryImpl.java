@@ -0,0 +1,23 @@
+package br.com.mmt.libraryapi.model.reactive;
+
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.repository.query.RelationalExampleMapper;
+import reactor.core.publisher.Flux;
+
+public class BookRowRepositoryImpl implements BookRowRepositoryCustom {
+
+    private final R2dbcEntityTemplate template;
+    private final RelationalExampleMapper exampleMapper;
+
+    public BookRowRepositoryImpl(R2dbcEntityTemplate template) {
+        this.template = template;
+        this.exampleMapper = new RelationalExampleMapper(template.getConverter().getMappingContext());
+    }
+
+    @Override
+    public Flux<BookRow> findAll(Example<BookRow> example, Pageable pageable) {
+        return template.select(exampleMapper.getMappedExample(example).with(pageable), BookRow.class);
+    }
+}
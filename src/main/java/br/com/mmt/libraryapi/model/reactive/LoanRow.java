@@ -0,0 +1,45 @@
+package br.com.mmt.libraryapi.model.reactive;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+
+/**
+ * Linha da tabela loan lida pelo R2DBC (perfil reactive). O livro é referenciado só pelo id (book_id).
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+@Table("loan")
+public class LoanRow {
+
+    @Id
+    private Long id;
+
+    private Long bookId;
+
+    private String customer;
+
+    private String customerEmail;
+
+    private LocalDate loanDate;
+
+    private Boolean returned;
+
+    //Mesma regra do @PrePersist de Loan: preenchido só enquanto o emprestimo está ativo (constraint unique)
+    private Long activeBookId;
+
+    @Version
+    private Long version;
+
+    public void updateActiveBookId() {
+        boolean active = returned == null || !returned;
+        activeBookId = active ? bookId : null;
+    }
+
+}
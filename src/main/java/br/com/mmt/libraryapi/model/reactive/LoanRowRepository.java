@@ -0,0 +1,28 @@
+package br.com.mmt.libraryapi.model.reactive;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface LoanRowRepository extends R2dbcRepository<LoanRow, Long> {
+
+    //active_book_id só é preenchido em emprestimos ativos
+    Mono<Boolean> existsByActiveBookId(Long bookId);
+
+    @Query("select l.* from loan l join book b on b.id = l.book_id " +
+            "where b.isbn = :isbn or l.customer = :customer order by l.id limit :limit offset :offset")
+    Flux<LoanRow> findByBookIsbnOrCustomer(@Param("isbn") String isbn,
+                                           @Param("customer") String customer,
+                                           @Param("limit") int limit,
+                                           @Param("offset") long offset);
+
+    @Query("select count(*) from loan l join book b on b.id = l.book_id where b.isbn = :isbn or l.customer = :customer")
+    Mono<Long> countByBookIsbnOrCustomer(@Param("isbn") String isbn, @Param("customer") String customer);
+
+    Flux<LoanRow> findByBookId(Long bookId, Pageable pageable);
+
+    Mono<Long> countByBookId(Long bookId);
+}
@@ -0,0 +1,19 @@
+package br.com.mmt.libraryapi.model.repository;
+
+import br.com.mmt.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+public interface BookRepositoryCustom {
+
+    /**
+     * Busca por Example paginada por chave (id > afterId, ordenado por id), sem a consulta de count.
+     */
+    Slice<Book> findAllAfter(Example<Book> example, Long afterId, int size);
+
+    /**
+     * Busca por Example paginada por offset, sem a consulta de count.
+     */
+    Slice<Book> findAllSlice(Example<Book> example, Pageable pageable);
+}
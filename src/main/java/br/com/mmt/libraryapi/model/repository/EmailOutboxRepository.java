@@ -0,0 +1,35 @@
+package br.com.mmt.libraryapi.model.repository;
+
+import br.com.mmt.libraryapi.model.entity.EmailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    /**
+     * Reserva para o token até size mensagens pendentes e vencidas, em ordem de id, movendo next_attempt_at para o fim da reserva.
+     * A condição se repete no update externo porque é reavaliada depois do lock da linha:
+     * duas reservas concorrentes nunca ficam com a mesma mensagem.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update email_outbox set claimed_by = :owner, next_attempt_at = :leaseUntil " +
+            "where status = 'PENDING' and next_attempt_at <= :now and id in (" +
+            "select id from email_outbox where status = 'PENDING' and next_attempt_at <= :now order by id limit :size)",
+            nativeQuery = true)
+    int claim(@Param("owner") String owner,
+              @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil,
+              @Param("size") int size);
+
+    List<EmailOutbox> findByClaimedByAndStatusOrderById(String owner, EmailOutbox.Status status);
+
+    long countByStatus(EmailOutbox.Status status);
+
+}
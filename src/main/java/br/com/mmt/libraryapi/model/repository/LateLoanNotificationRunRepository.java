@@ -0,0 +1,18 @@
+package br.com.mmt.libraryapi.model.repository;
+
+import br.com.mmt.libraryapi.model.entity.LateLoanNotificationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface LateLoanNotificationRunRepository extends JpaRepository<LateLoanNotificationRun, LocalDate> {
+
+    Optional<LateLoanNotificationRun> findFirstByFinishedFalseOrderByRunDateDesc();
+
+    Optional<LateLoanNotificationRun> findFirstByFinishedTrueOrderByRunDateDesc();
+
+    List<LateLoanNotificationRun> findByFinishedFalse();
+
+}
@@ -5,27 +5,174 @@ import br.com.mmt.libraryapi.model.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface LoanRepository extends JpaRepository<Loan, Long> {
 
+    //Sem open-in-view o livro precisa vir junto: o controller monta o LoanDTO fora da transação
+    @Override
+    @EntityGraph(attributePaths = "book")
+    Optional<Loan> findById(Long id);
+
     @Query(value = " select case when (count(l.id) > 0 ) then true else false end from Loan l where l.book = :book and ( l.returned is null or l.returned is false ) ")
     boolean existsByBookAndNotReturned(@Param("book") Book book);
 
-    @Query(value = "select l from Loan as l join l.book as b where b.isbn = :isbn or l.customer = :customer")
+    @Query(value = "select l from Loan as l join fetch l.book as b where b.isbn = :isbn or l.customer = :customer",
+            countQuery = "select count(l) from Loan as l join l.book as b where b.isbn = :isbn or l.customer = :customer")
     Page<Loan> findhByBookIsbnOrCustomer(
             @Param("isbn") String isbn,
             @Param("customer") String customer,
             Pageable page);
 
+    //Mesma consulta sem o count: o Slice busca um registro a mais para saber se existe próxima página
+    @Query(value = "select l from Loan as l join fetch l.book as b where b.isbn = :isbn or l.customer = :customer")
+    Slice<Loan> findSliceByBookIsbnOrCustomer(
+            @Param("isbn") String isbn,
+            @Param("customer") String customer,
+            Pageable page);
+
+    @Query("select count(l) from Loan as l join l.book as b where b.isbn = :isbn or l.customer = :customer")
+    long countByBookIsbnOrCustomer(
+            @Param("isbn") String isbn,
+            @Param("customer") String customer);
+
+    //Buscas com um só filtro: o "or" entre livro e customer não usa índice, cada coluna isolada usa
+    //Inner join explícito: com o left join da consulta derivada o H2 não começa pelo índice de isbn
+    @Query(value = "select l from Loan as l join fetch l.book as b where b.isbn = :isbn",
+            countQuery = "select count(l) from Loan as l join l.book as b where b.isbn = :isbn")
+    Page<Loan> findByBookIsbn(@Param("isbn") String isbn, Pageable page);
+
+    @Query("select l from Loan as l join fetch l.book as b where b.isbn = :isbn")
+    Slice<Loan> findSliceByBookIsbn(@Param("isbn") String isbn, Pageable page);
+
+    @Query("select count(l) from Loan as l join l.book as b where b.isbn = :isbn")
+    long countByBookIsbn(@Param("isbn") String isbn);
+
+    @EntityGraph(attributePaths = "book")
+    Page<Loan> findByCustomer(String customer, Pageable page);
+
+    @EntityGraph(attributePaths = "book")
+    Slice<Loan> findSliceByCustomer(String customer, Pageable page);
+
+    long countByCustomer(String customer);
+
+    @Query(value = "select l from Loan as l join fetch l.book as b where (b.isbn = :isbn or l.customer = :customer) and l.id > :after order by l.id")
+    Slice<Loan> findhByBookIsbnOrCustomerAfter(
+            @Param("isbn") String isbn,
+            @Param("customer") String customer,
+            @Param("after") Long after,
+            Pageable page);
+
+    /**
+     * Leitura em uma única passada para exportação: sem filtro (isbn e customer nulos) retorna todos os emprestimos.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = BookRepository.STREAM_FETCH_SIZE), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(value = "select l from Loan as l join fetch l.book as b " +
+            "where (:isbn is null and :customer is null) or b.isbn = :isbn or l.customer = :customer order by l.id")
+    Stream<Loan> streamByBookIsbnOrCustomer(
+            @Param("isbn") String isbn,
+            @Param("customer") String customer);
+
+    @EntityGraph(attributePaths = "book")
     Page<Loan> findByBook(Book book, Pageable pageable);
 
-    @Query("select l from Loan l where l.loanDate <= :trheeDaysAgo and (l.returned is null or l.returned is false) ")
+    @EntityGraph(attributePaths = "book")
+    Slice<Loan> findByBookAndIdGreaterThanOrderById(Book book, Long after, Pageable pageable);
+
+    @Query("select l from Loan l join fetch l.book where l.loanDate <= :trheeDaysAgo and (l.returned is null or l.returned is false) ")
     List<Loan> findByLoanDateLessThanAndNotReturned(@Param("trheeDaysAgo") LocalDate trheeDaysAgo);
+
+    @Query("select count(l) from Loan l where l.loanDate <= :loanDate and (l.returned is null or l.returned is false)")
+    long countLateLoans(@Param("loanDate") LocalDate loanDate);
+
+    /**
+     * Emprestimos atrasados em ordem de (customerEmail, id), a partir da última chave lida, para percorrer em blocos.
+     */
+    @Query("select l from Loan l join fetch l.book " +
+            "where l.loanDate <= :loanDate and (l.returned is null or l.returned is false) and l.customerEmail is not null " +
+            "and (l.customerEmail > :email or (l.customerEmail = :email and l.id > :after)) " +
+            "order by l.customerEmail, l.id")
+    List<Loan> findLateLoansAfter(
+            @Param("loanDate") LocalDate loanDate,
+            @Param("email") String email,
+            @Param("after") Long after,
+            Pageable page);
+
+    @Query("select l.activeBookId as bookId, l.id as loanId from Loan l where l.activeBookId is not null")
+    List<ActiveLoan> findActiveLoans();
+
+    @Query("select l.activeBookId as bookId, l.id as loanId from Loan l where l.activeBookId in :bookIds")
+    List<ActiveLoan> findActiveLoansByBookIdIn(@Param("bookIds") Collection<Long> bookIds);
+
+    @Query("select l.id as loanId, b.id as bookId, b.isbn as isbn, l.returned as returned, " +
+            "l.customer as customer, l.loanDate as loanDate from Loan l join l.book b where l.id in :ids")
+    List<LoanState> findStatesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select l.id as loanId, b.id as bookId, b.isbn as isbn, l.returned as returned, " +
+            "l.customer as customer, l.loanDate as loanDate from Loan l join l.book b " +
+            "where b.isbn in :isbns and l.activeBookId is not null")
+    List<LoanState> findActiveStatesByIsbnIn(@Param("isbns") Collection<String> isbns);
+
+    /**
+     * Emprestimos ativos com loan_date posterior à data, para montar a fila de vencimentos (usa o índice de loan_date).
+     */
+    @Query("select l.id as loanId, l.loanDate as loanDate from Loan l " +
+            "where l.loanDate > :after and (l.returned is null or l.returned is false)")
+    List<LoanDue> findActiveLoanDatesAfter(@Param("after") LocalDate after);
+
+    /**
+     * Emprestimos ativos feitos na data, em ordem de id a partir do último lido, para notificar um vencimento
+     * (usa o índice de loan_date e returned).
+     */
+    @Query("select l from Loan l join fetch l.book " +
+            "where l.loanDate = :loanDate and (l.returned is null or l.returned is false) and l.id > :after order by l.id")
+    List<Loan> findActiveByLoanDateAfter(
+            @Param("loanDate") LocalDate loanDate,
+            @Param("after") Long after,
+            Pageable page);
+
+    /**
+     * Devolução em lote num único update; emprestimos já devolvidos não são alterados.
+     * A versão é incrementada para que um PATCH com o emprestimo lido antes falhe em vez de devolvê-lo de novo.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Loan l set l.returned = true, l.activeBookId = null, l.version = l.version + 1 where l.id in :ids and (l.returned is null or l.returned is false)")
+    int markReturned(@Param("ids") Collection<Long> ids);
+
+    interface ActiveLoan {
+        Long getBookId();
+        Long getLoanId();
+    }
+
+    interface LoanState {
+        Long getLoanId();
+        Long getBookId();
+        String getIsbn();
+        Boolean getReturned();
+        String getCustomer();
+        LocalDate getLoanDate();
+    }
+
+    interface LoanDue {
+        Long getLoanId();
+        LocalDate getLoanDate();
+    }
 }
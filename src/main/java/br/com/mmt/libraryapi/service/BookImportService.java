@@ -0,0 +1,13 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.api.dto.BookImportResultDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface BookImportService {
+
+    enum Format { NDJSON, CSV }
+
+    BookImportResultDTO importBooks(InputStream input, Format format) throws IOException;
+}
@@ -3,6 +3,7 @@ package br.com.mmt.libraryapi.service;
 import br.com.mmt.libraryapi.model.entity.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 
 import java.util.Optional;
@@ -19,5 +20,13 @@ public interface BookService {
 
     Page<Book> find(Book filter, Pageable pageRequest);
 
+    Slice<Book> findSlice(Book filter, Pageable pageRequest);
+
+    Page<Book> findEstimated(Book filter, Pageable pageRequest);
+
+    Slice<Book> findAfter(Book filter, Long afterId, int size);
+
+    Page<Book> search(String query, Pageable pageRequest);
+
     Optional<Book> getBookByIsbn(String isbn);
 }
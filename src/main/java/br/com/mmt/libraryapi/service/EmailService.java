@@ -1,7 +1,13 @@
 package br.com.mmt.libraryapi.service;
 
 import java.util.List;
+import java.util.Map;
 
 public interface EmailService {
     void sendMails(String mensagem, List<String> mailList);
+
+    /**
+     * Enfileira uma mensagem por destinatário (email -> texto). O envio acontece em segundo plano.
+     */
+    void sendMails(Map<String, String> messagesByEmail);
 }
@@ -0,0 +1,14 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.api.dto.LoanFilterDTO;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.entity.Loan;
+
+import java.util.function.Consumer;
+
+public interface ExportService {
+
+    void exportLoans(LoanFilterDTO filter, Consumer<Loan> consumer);
+
+    void exportBooks(Consumer<Book> consumer);
+}
@@ -0,0 +1,15 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.api.dto.LoanBatchResultDTO;
+import br.com.mmt.libraryapi.api.dto.LoanDTO;
+import br.com.mmt.libraryapi.api.dto.LoanReturnRequestDTO;
+import br.com.mmt.libraryapi.api.dto.LoanReturnResultDTO;
+
+import java.util.List;
+
+public interface LoanBatchService {
+
+    LoanBatchResultDTO createLoans(List<LoanDTO> loans);
+
+    LoanReturnResultDTO returnLoans(LoanReturnRequestDTO request);
+}
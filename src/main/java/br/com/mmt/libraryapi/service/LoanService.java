@@ -5,7 +5,9 @@ import br.com.mmt.libraryapi.model.entity.Book;
 import br.com.mmt.libraryapi.model.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,7 +21,19 @@ public interface LoanService {
 
     Page<Loan> find(LoanFilterDTO filter, Pageable pageable);
 
+    Slice<Loan> findSlice(LoanFilterDTO filter, Pageable pageable);
+
+    Page<Loan> findEstimated(LoanFilterDTO filter, Pageable pageable);
+
+    Slice<Loan> findAfter(LoanFilterDTO filter, Long afterId, int size);
+
     Page<Loan> getLoansByBook(Book book, Pageable pageable);
 
+    Slice<Loan> getLoansByBookAfter(Book book, Long afterId, int size);
+
     List<Loan> getAllLateLoans();
+
+    long countLateLoans(LocalDate referenceDate);
+
+    List<Loan> getLateLoansAfter(LocalDate referenceDate, String afterEmail, Long afterId, int size);
 }
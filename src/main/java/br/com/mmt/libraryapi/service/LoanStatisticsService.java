@@ -0,0 +1,27 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.api.dto.BookLoanStatsDTO;
+import br.com.mmt.libraryapi.api.dto.CustomerLoanStatsDTO;
+import br.com.mmt.libraryapi.api.dto.DailyLoanStatsDTO;
+import br.com.mmt.libraryapi.model.entity.Loan;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface LoanStatisticsService {
+
+    void loansCreated(Collection<Loan> loans);
+
+    void loansReturned(Collection<Loan> loans);
+
+    void loansReopened(Collection<Loan> loans);
+
+    BookLoanStatsDTO getBookStats(Long bookId);
+
+    CustomerLoanStatsDTO getCustomerStats(String customer);
+
+    List<DailyLoanStatsDTO> getDailyStats(LocalDate from, LocalDate to);
+
+    void reconcile();
+}
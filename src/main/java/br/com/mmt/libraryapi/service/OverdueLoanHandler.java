@@ -0,0 +1,18 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.model.entity.Loan;
+
+import java.util.List;
+
+/**
+ * Recebe os emprestimos no momento em que passam a estar atrasados. Todo bean que implementa a interface é chamado.
+ */
+public interface OverdueLoanHandler {
+
+    /**
+     * Emprestimos que acabaram de vencer, ainda ativos e com o livro carregado.
+     * Roda na transação que reserva o vencimento: uma exceção desfaz a reserva e o vencimento é entregue de novo
+     * a todos os handlers, então o handler deve gravar nessa transação (como a fila de emails) ou tolerar repetição.
+     */
+    void onOverdue(List<Loan> loans);
+}
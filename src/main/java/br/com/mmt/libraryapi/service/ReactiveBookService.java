@@ -0,0 +1,29 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.model.reactive.BookRow;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Versão não bloqueante do BookService (perfil reactive), sobre R2DBC.
+ */
+public interface ReactiveBookService {
+
+    Mono<BookRow> save(BookRow book);
+
+    Mono<BookRow> getById(Long id);
+
+    Flux<BookRow> getByIds(Collection<Long> ids);
+
+    Mono<Void> delete(BookRow book);
+
+    Mono<BookRow> update(BookRow book);
+
+    Mono<Page<BookRow>> find(BookRow filter, Pageable pageRequest);
+
+    Mono<BookRow> getBookByIsbn(String isbn);
+}
@@ -0,0 +1,23 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.api.dto.LoanFilterDTO;
+import br.com.mmt.libraryapi.model.reactive.LoanRow;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Versão não bloqueante do LoanService (perfil reactive), sobre R2DBC.
+ */
+public interface ReactiveLoanService {
+
+    Mono<LoanRow> save(LoanRow loan);
+
+    Mono<LoanRow> getById(Long id);
+
+    Mono<LoanRow> update(LoanRow loan);
+
+    Mono<Page<LoanRow>> find(LoanFilterDTO filter, Pageable pageable);
+
+    Mono<Page<LoanRow>> getLoansByBook(Long bookId, Pageable pageable);
+}
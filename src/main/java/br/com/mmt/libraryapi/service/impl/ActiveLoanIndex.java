@@ -0,0 +1,67 @@
+package br.com.mmt.libraryapi.service.impl;
+
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.model.repository.LoanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Índice em memória livro -> emprestimo ativo, usado para responder se um livro está emprestado sem consultar a base.
+ * A garantia definitiva fica com a constraint unique de loan.active_book_id.
+ */
+@Component
+@Slf4j
+public class ActiveLoanIndex {
+
+    private final ConcurrentMap<Long, Long> loanByBook = new ConcurrentHashMap<>();
+
+    private final LoanRepository repository;
+
+    public ActiveLoanIndex(LoanRepository repository) {
+        this.repository = repository;
+    }
+
+    @PostConstruct
+    public void load() {
+        loanByBook.clear();
+        registerAll(repository.findActiveLoans());
+        log.info("Active loan index loaded with {} loans", loanByBook.size());
+    }
+
+    public boolean isLoaned(Long bookId) {
+        return bookId != null && loanByBook.containsKey(bookId);
+    }
+
+    public void register(Loan loan) {
+        if(loan.getBook() == null || loan.getBook().getId() == null){
+            return;
+        }
+        Long bookId = loan.getBook().getId();
+        if(loan.getReturned() == null || !loan.getReturned()){
+            loanByBook.put(bookId, loan.getId());
+        } else {
+            loanByBook.remove(bookId, loan.getId());
+        }
+    }
+
+    public void registerAll(Collection<LoanRepository.ActiveLoan> activeLoans) {
+        activeLoans.forEach(active -> loanByBook.put(active.getBookId(), active.getLoanId()));
+    }
+
+    public void evict(Long bookId) {
+        loanByBook.remove(bookId);
+    }
+
+    public void evictAll(Collection<Long> bookIds) {
+        loanByBook.keySet().removeAll(bookIds);
+    }
+
+    public int size() {
+        return loanByBook.size();
+    }
+}
@@ -0,0 +1,27 @@
+package br.com.mmt.libraryapi.service.impl;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Atualização dos índices e caches em memória (ActiveLoanIndex, OverdueLoanTracker, cache de livros) só depois do commit:
+ * uma transação desfeita não deixa no índice um estado que a base não tem. Sem transação executa na hora.
+ */
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    static void run(Runnable action) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,214 @@
+package br.com.mmt.libraryapi.service.impl;
+
+import br.com.mmt.libraryapi.api.dto.BookDTO;
+import br.com.mmt.libraryapi.api.dto.BookImportErrorDTO;
+import br.com.mmt.libraryapi.api.dto.BookImportResultDTO;
+import br.com.mmt.libraryapi.config.metrics.MetricsConfig;
+import br.com.mmt.libraryapi.model.repository.BookRepository;
+import br.com.mmt.libraryapi.service.BookImportService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Importação de livros em lote: lê o arquivo linha a linha, valida, remove isbns já cadastrados consultando a base
+ * por bloco e grava cada bloco com JDBC batch. A memória usada depende só do tamanho do bloco.
+ */
+@Service
+@Slf4j
+public class BookImportServiceImpl implements BookImportService {
+
+    private static final String INSERT_BOOK = "insert into book (title, author, isbn, version) values (?, ?, ?, 0)";
+    private static final String DUPLICATED_ISBN = "Isbn já cadastrado.";
+
+    private final BookRepository repository;
+    private final BookSearchIndex searchIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    public BookImportServiceImpl(BookRepository repository,
+                                 BookSearchIndex searchIndex,
+                                 JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 ObjectMapper objectMapper,
+                                 Validator validator,
+                                 @Value("${application.import.chunk-size:500}") int chunkSize,
+                                 @Value("${application.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.repository = repository;
+        this.searchIndex = searchIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    public BookImportResultDTO importBooks(InputStream input, Format format) throws IOException {
+        BookImportResultDTO result = new BookImportResultDTO();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        ObjectReader rowReader = format == Format.NDJSON ? objectMapper.readerFor(BookDTO.class) : null;
+        List<Row> chunk = new ArrayList<>(chunkSize);
+
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if(line.trim().isEmpty()){
+                continue;
+            }
+            if(rowReader == null){
+                //CSV: a primeira linha é o cabeçalho com os nomes das colunas
+                rowReader = csvReader(line);
+                continue;
+            }
+            result.setProcessed(result.getProcessed() + 1);
+            try {
+                BookDTO book = rowReader.readValue(line);
+                //A linha "null" é JSON válido, mas não é um livro
+                if(book == null){
+                    fail(result, lineNumber, null, "Linha inválida: esperado um objeto JSON");
+                    continue;
+                }
+                String violation = validate(book);
+                if(violation != null){
+                    fail(result, lineNumber, book.getIsbn(), violation);
+                } else {
+                    chunk.add(new Row(lineNumber, book));
+                }
+            } catch (JsonProcessingException e) {
+                fail(result, lineNumber, null, "Linha inválida: " + e.getOriginalMessage());
+            }
+            if(chunk.size() == chunkSize){
+                importChunk(chunk, result);
+                chunk.clear();
+            }
+        }
+        if(!chunk.isEmpty()){
+            importChunk(chunk, result);
+        }
+        log.info("Book import finished: {} processed, {} imported, {} failed",
+                result.getProcessed(), result.getImported(), result.getFailed());
+        return result;
+    }
+
+    private ObjectReader csvReader(String header) {
+        CsvSchema.Builder schema = CsvSchema.builder();
+        Arrays.stream(header.split(",")).map(String::trim).forEach(schema::addColumn);
+        return new CsvMapper()
+                .readerFor(BookDTO.class)
+                .with(schema.build())
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    private String validate(BookDTO book) {
+        Set<ConstraintViolation<BookDTO>> violations = validator.validate(book);
+        if(violations.isEmpty()){
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private void importChunk(List<Row> chunk, BookImportResultDTO result) {
+        List<Row> pending = new ArrayList<>(chunk.size());
+        List<Row> duplicated = new ArrayList<>();
+        Boolean batched = transactionTemplate.execute(status -> {
+            Set<String> existing = repository.findExistingIsbns(
+                    chunk.stream().map(row -> row.book.getIsbn()).collect(Collectors.toSet()));
+            Set<String> seen = new HashSet<>();
+            for (Row row : chunk) {
+                String isbn = row.book.getIsbn();
+                //Duplicado na base ou repetido no próprio arquivo (a primeira ocorrência é gravada)
+                if(existing.contains(isbn) || !seen.add(isbn)){
+                    duplicated.add(row);
+                } else {
+                    pending.add(row);
+                }
+            }
+            try {
+                jdbcTemplate.batchUpdate(INSERT_BOOK, pending.stream().map(Row::args).collect(Collectors.toList()));
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                //Outro cadastro gravou o isbn depois da consulta: desfaz o bloco e grava linha a linha
+                status.setRollbackOnly();
+                return false;
+            }
+        });
+        if(!Boolean.TRUE.equals(batched)){
+            insertOneByOne(pending, duplicated);
+        }
+        //O resultado só é atualizado fora da transação, que pode ser desfeita
+        duplicated.sort(Comparator.comparingLong(row -> row.line));
+        duplicated.forEach(row -> fail(result, row.line, row.book.getIsbn(), DUPLICATED_ISBN));
+        result.setImported(result.getImported() + pending.size());
+        //Só indexa depois do commit; os ids gerados pelo batch são obtidos pelo isbn
+        if(!pending.isEmpty()){
+            repository.findByIsbnIn(pending.stream().map(row -> row.book.getIsbn()).collect(Collectors.toList()))
+                    .forEach(searchIndex::index);
+        }
+    }
+
+    private void insertOneByOne(List<Row> pending, List<Row> duplicated) {
+        //Cada insert na sua transação, para que só as linhas que violam a constraint falhem
+        Iterator<Row> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            Row row = iterator.next();
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(INSERT_BOOK, row.args()));
+            } catch (DataIntegrityViolationException e) {
+                duplicated.add(row);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void fail(BookImportResultDTO result, long line, String isbn, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if(result.getErrors().size() < maxReportedErrors){
+            result.getErrors().add(new BookImportErrorDTO(line, isbn, message));
+        }
+    }
+
+    private static class Row {
+        private final long line;
+        private final BookDTO book;
+
+        Row(long line, BookDTO book) {
+            this.line = line;
+            this.book = book;
+        }
+
+        Object[] args() {
+            return new Object[]{book.getTitle(), book.getAuthor(), book.getIsbn()};
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package br.com.mmt.libraryapi.service.impl;
+
+import br.com.mmt.libraryapi.model.entity.Book;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Índice invertido em memória de título, autor e isbn: token -> (id do livro -> peso).
+ * Os tokens são normalizados sem acento e em minúsculas, e cada termo da busca casa também como prefixo.
+ * Todos os termos precisam casar; o ranking soma o peso do campo, dobrado quando o termo casa o token inteiro.
+ * É carregado na subida e mantido pelo BookServiceImpl e pela importação.
+ */
+@Component
+@Slf4j
+public class BookSearchIndex {
+
+    static final int TITLE_WEIGHT = 3;
+    static final int AUTHOR_WEIGHT = 2;
+    static final int ISBN_WEIGHT = 5;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    //Letras e dígitos de qualquer alfabeto: \p{Alnum} é só ASCII e partiria "straße" ou "øresund"
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "o", "as", "os", "e", "de", "da", "do", "das", "dos", "em", "na", "no", "um", "uma", "para", "com", "the", "of"));
+
+    private final ConcurrentSkipListMap<String, ConcurrentMap<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+    //Tokens de cada livro, para remover as entradas antigas ao atualizar ou deletar
+    private final ConcurrentMap<Long, Set<String>> tokensByBook = new ConcurrentHashMap<>();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void load() {
+        postings.clear();
+        tokensByBook.clear();
+        //Leitura linha a linha via JDBC, sem carregar as entidades no contexto de persistência
+        jdbcTemplate.query("select id, title, author, isbn from book", rs -> {
+            index(rs.getLong("id"), rs.getString("title"), rs.getString("author"), rs.getString("isbn"));
+        });
+        log.info("Book search index loaded with {} books and {} tokens", tokensByBook.size(), postings.size());
+    }
+
+    public void index(Book book) {
+        if(book.getId() != null){
+            index(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+        }
+    }
+
+    public synchronized void remove(Long bookId) {
+        Set<String> tokens = tokensByBook.remove(bookId);
+        if(tokens == null){
+            return;
+        }
+        for (String token : tokens) {
+            postings.computeIfPresent(token, (key, books) -> {
+                books.remove(bookId);
+                return books.isEmpty() ? null : books;
+            });
+        }
+    }
+
+    public int size() {
+        return tokensByBook.size();
+    }
+
+    /**
+     * Ids dos livros que casam com todos os termos, do mais relevante para o menos relevante (empate pelo id).
+     */
+    public Page<Long> search(String query, Pageable pageable) {
+        List<String> terms = tokenize(query);
+        if(terms.isEmpty()){
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+
+        Map<Long, Integer> scores = null;
+        for (String term : terms) {
+            Map<Long, Integer> termScores = score(term);
+            if(scores == null){
+                scores = termScores;
+            } else {
+                scores.keySet().retainAll(termScores.keySet());
+                scores.replaceAll((id, score) -> score + termScores.get(id));
+            }
+            if(scores.isEmpty()){
+                return new PageImpl<>(Collections.emptyList(), pageable, 0);
+            }
+        }
+
+        List<Long> ranked = scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        int to = Math.min(from + pageable.getPageSize(), ranked.size());
+        return new PageImpl<>(new ArrayList<>(ranked.subList(from, to)), pageable, ranked.size());
+    }
+
+    private Map<Long, Integer> score(String term) {
+        Map<Long, Integer> scores = new HashMap<>();
+        ConcurrentNavigableMap<String, ConcurrentMap<Long, Integer>> matches =
+                postings.subMap(term, true, term + Character.MAX_VALUE, true);
+        matches.forEach((token, books) -> {
+            int factor = token.equals(term) ? 2 : 1;
+            books.forEach((id, weight) -> scores.merge(id, weight * factor, Integer::sum));
+        });
+        return scores;
+    }
+
+    private synchronized void index(Long bookId, String title, String author, String isbn) {
+        remove(bookId);
+        Map<String, Integer> weights = new HashMap<>();
+        tokenize(title).forEach(token -> weights.merge(token, TITLE_WEIGHT, Integer::sum));
+        tokenize(author).forEach(token -> weights.merge(token, AUTHOR_WEIGHT, Integer::sum));
+        tokenize(isbn).forEach(token -> weights.merge(token, ISBN_WEIGHT, Integer::sum));
+        if(isbn != null){
+            //Isbn também indexado sem hífens, para buscar "9788535" em "978-85-35..."
+            String compactIsbn = SEPARATORS.matcher(fold(isbn)).replaceAll("");
+            if(!compactIsbn.isEmpty()){
+                weights.putIfAbsent(compactIsbn, ISBN_WEIGHT);
+            }
+        }
+        weights.forEach((token, weight) -> postings.computeIfAbsent(token, key -> new ConcurrentHashMap<>()).put(bookId, weight));
+        tokensByBook.put(bookId, weights.keySet());
+    }
+
+    static List<String> tokenize(String text) {
+        if(text == null || text.isEmpty()){
+            return Collections.emptyList();
+        }
+        return Arrays.stream(SEPARATORS.split(fold(text)))
+                .filter(token -> !token.isEmpty() && !STOP_WORDS.contains(token))
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private static String fold(String text) {
+        //"Ação" -> "acao"
+        return DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
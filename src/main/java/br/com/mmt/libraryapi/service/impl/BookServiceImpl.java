@@ -1,72 +1,207 @@
 package br.com.mmt.libraryapi.service.impl;
 
+import br.com.mmt.libraryapi.api.cache.BookJsonCache;
+import br.com.mmt.libraryapi.config.datasource.ReadFromReplica;
+import br.com.mmt.libraryapi.config.metrics.MetricsConfig;
+import br.com.mmt.libraryapi.config.singleflight.SingleFlight;
 import br.com.mmt.libraryapi.exceptions.BusinessException;
 import br.com.mmt.libraryapi.model.entity.Book;
 import br.com.mmt.libraryapi.model.repository.BookRepository;
 import br.com.mmt.libraryapi.service.BookService;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.swing.text.html.Option;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class BookServiceImpl implements BookService {
 
+    public static final String BOOKS_CACHE = "books";
+    public static final String BOOKS_BY_ISBN_CACHE = "booksByIsbn";
+
     private BookRepository repository;
 
-    public BookServiceImpl(BookRepository repository) {
+    private BookSearchIndex searchIndex;
+
+    private CountEstimator countEstimator;
+
+    private BookJsonCache bookJson;
+
+    private CacheManager cacheManager;
+
+    private Counter isbnAlreadyRegistered;
+
+    public BookServiceImpl(BookRepository repository, BookSearchIndex searchIndex, CountEstimator countEstimator,
+                           BookJsonCache bookJson, CacheManager cacheManager, MeterRegistry registry) {
         this.repository = repository;
+        this.searchIndex = searchIndex;
+        this.countEstimator = countEstimator;
+        this.bookJson = bookJson;
+        this.cacheManager = cacheManager;
+        this.isbnAlreadyRegistered = registry.counter(MetricsConfig.BUSINESS_REJECTIONS, "reason", "isbn_already_registered");
     }
 
     @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    //Transação de escrita: a consulta do isbn lê do primário
+    @Transactional
     public Book save(Book book) {
 
         if(repository.existsByIsbn(book.getIsbn())){
-            throw new BusinessException("Isbn já cadastrado.");
+            throw isbnAlreadyRegistered();
+        }
+        Book savedBook;
+        try {
+            savedBook = repository.save(book);
+        } catch (DataIntegrityViolationException e) {
+            //Violação do índice único de isbn: outro livro com o mesmo isbn foi gravado depois da consulta
+            throw isbnAlreadyRegistered();
         }
-        return repository.save(book);
+        searchIndex.index(savedBook);
+        return savedBook;
+    }
+
+    private BusinessException isbnAlreadyRegistered() {
+        isbnAlreadyRegistered.increment();
+        return new BusinessException("Isbn já cadastrado.");
     }
 
     @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
+    @SingleFlight
+    @Cacheable(cacheNames = BOOKS_CACHE, unless = "#result == null")
     public Optional<Book> getById(Long id) {
         return repository.findById(id);
     }
 
     @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @Caching(evict = {
+            @CacheEvict(cacheNames = BOOKS_CACHE, key = "#book.id"),
+            @CacheEvict(cacheNames = BOOKS_BY_ISBN_CACHE, key = "#book.isbn", condition = "#book.isbn != null")
+    })
     public void delete(Book book) {
         if(book.getId() == null){
             throw new IllegalArgumentException("Book id cant be null.");
         }
         repository.delete(book);
+        searchIndex.remove(book.getId());
+        bookJson.evict(book.getId());
     }
 
     @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @Transactional
     public Book update(Book book) {
         if(book.getId() == null){
             throw new IllegalArgumentException("Book id cant be null.");
         }
-        return repository.save(book);
+        Book updatedBook = repository.save(book);
+        //Evict só depois do commit: antes dele um GET concorrente ainda lê a versão antiga e a colocaria de volta no cache
+        AfterCommit.run(() -> {
+            evict(book);
+            searchIndex.index(updatedBook);
+        });
+        return updatedBook;
+    }
+
+    private void evict(Book book) {
+        cacheManager.getCache(BOOKS_CACHE).evict(book.getId());
+        if(book.getIsbn() != null){
+            cacheManager.getCache(BOOKS_BY_ISBN_CACHE).evict(book.getIsbn());
+        }
+        bookJson.evict(book.getId());
     }
 
     @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
+    @SingleFlight
     public Page<Book> find(Book filter, Pageable pageRequest) {
+        return repository.findAll(toExample(filter), pageRequest);
+    }
 
-        Example<Book> example = Example.of(filter,
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
+    @SingleFlight
+    public Slice<Book> findSlice(Book filter, Pageable pageRequest) {
+        return repository.findAllSlice(toExample(filter), pageRequest);
+    }
+
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
+    @SingleFlight
+    public Page<Book> findEstimated(Book filter, Pageable pageRequest) {
+        Example<Book> example = toExample(filter);
+        Slice<Book> slice = repository.findAllSlice(example, pageRequest);
+        return countEstimator.page(slice, () -> repository.count(example),
+                "book", filter.getTitle(), filter.getAuthor(), filter.getIsbn());
+    }
+
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
+    public Slice<Book> findAfter(Book filter, Long afterId, int size) {
+        return repository.findAllAfter(toExample(filter), afterId == null ? 0L : afterId, size);
+    }
+
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
+    public Page<Book> search(String query, Pageable pageRequest) {
+        Page<Long> ids = searchIndex.search(query, pageRequest);
+        if(ids.isEmpty()){
+            return new PageImpl<>(Collections.emptyList(), pageRequest, ids.getTotalElements());
+        }
+        //A busca por id não garante a ordem: reordena pelo ranking do índice
+        Map<Long, Book> booksById = repository.findAllById(ids.getContent()).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<Book> books = ids.getContent().stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new PageImpl<>(books, pageRequest, ids.getTotalElements());
+    }
+
+    private Example<Book> toExample(Book filter) {
+        return Example.of(filter,
                 ExampleMatcher
                         .matching()
                         .withIgnoreCase()
                         .withIgnoreNullValues()
                         .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)
         );
-
-        return repository.findAll(example, pageRequest);
     }
 
     @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
+    @SingleFlight
+    @Cacheable(cacheNames = BOOKS_BY_ISBN_CACHE, unless = "#result == null")
     public Optional<Book> getBookByIsbn(String isbn) {
         return repository.findByIsbn(isbn);
     }
@@ -0,0 +1,86 @@
+package br.com.mmt.libraryapi.service.impl;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+
+/**
+ * Totais aproximados das consultas paginadas, um por filtro distinto. O primeiro pedido de um filtro conta na base;
+ * os seguintes usam o valor em cache, recontado em segundo plano depois de refresh-after-ms.
+ * Filtros sem acesso por expire-after-ms saem do cache.
+ */
+@Component
+public class CountEstimator {
+
+    private final LoadingCache<Key, Long> counts;
+
+    public CountEstimator(MeterRegistry registry,
+                          @Qualifier("applicationTaskExecutor") Executor executor,
+                          @Value("${application.pagination.count-estimate.refresh-after-ms:30000}") long refreshAfterMs,
+                          @Value("${application.pagination.count-estimate.expire-after-ms:600000}") long expireAfterMs,
+                          @Value("${application.pagination.count-estimate.max-filters:10000}") long maxFilters) {
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(maxFilters)
+                .refreshAfterWrite(Duration.ofMillis(refreshAfterMs))
+                .expireAfterAccess(Duration.ofMillis(expireAfterMs))
+                .executor(executor)
+                .recordStats()
+                .build(key -> key.counter.getAsLong());
+        CaffeineCacheMetrics.monitor(registry, counts, "countEstimates");
+    }
+
+    /**
+     * Página com o total estimado do filtro. A última página tem o total exato sem contar, e a estimativa
+     * nunca fica abaixo do que a própria página já mostra.
+     */
+    public <T> Page<T> page(Slice<T> slice, LongSupplier counter, Object... filter) {
+        Pageable pageable = slice.getPageable();
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        long seen = offset + slice.getNumberOfElements();
+        if(!slice.hasNext() && (slice.hasContent() || offset == 0)){
+            return new PageImpl<>(slice.getContent(), pageable, seen);
+        }
+        long total = Math.max(count(counter, filter), slice.hasNext() ? seen + 1 : seen);
+        return new PageImpl<>(slice.getContent(), pageable, total);
+    }
+
+    public long count(LongSupplier counter, Object... filter) {
+        return counts.get(new Key(Arrays.asList(filter), counter));
+    }
+
+    //O counter fica fora do equals: a recontagem usa o da primeira requisição do filtro
+    private static final class Key {
+        private final List<Object> filter;
+        private final LongSupplier counter;
+
+        Key(List<Object> filter, LongSupplier counter) {
+            this.filter = new ArrayList<>(filter);
+            this.counter = counter;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && filter.equals(((Key) o).filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return filter.hashCode();
+        }
+    }
+}
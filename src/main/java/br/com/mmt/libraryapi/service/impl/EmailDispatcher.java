@@ -0,0 +1,178 @@
+package br.com.mmt.libraryapi.service.impl;
+
+import br.com.mmt.libraryapi.model.entity.EmailOutbox;
+import br.com.mmt.libraryapi.model.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drena a outbox de emails em lotes: cada lote é enviado numa única conexão SMTP.
+ * O lote é reservado na base antes do envio, então várias instâncias podem drenar a mesma outbox sem repetir mensagens.
+ * Falhas são reagendadas com backoff exponencial e, esgotadas as tentativas, a mensagem vai para DEAD.
+ */
+@Slf4j
+@Component
+public class EmailDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final EmailOutboxRepository outboxRepository;
+    private final JavaMailSender javaMailSender;
+    private final String remetent;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final long leaseMs;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+    private final Timer sendTimer;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Counter deadCounter;
+
+    public EmailDispatcher(EmailOutboxRepository outboxRepository,
+                           JavaMailSender javaMailSender,
+                           MeterRegistry registry,
+                           @Value("${application.mail.default-rementent}") String remetent,
+                           @Value("${application.mail.outbox.batch-size:50}") int batchSize,
+                           @Value("${application.mail.outbox.max-attempts:6}") int maxAttempts,
+                           @Value("${application.mail.outbox.initial-backoff-ms:30000}") long initialBackoffMs,
+                           @Value("${application.mail.outbox.max-backoff-ms:3600000}") long maxBackoffMs,
+                           @Value("${application.mail.outbox.lease-ms:300000}") long leaseMs) {
+        this.outboxRepository = outboxRepository;
+        this.javaMailSender = javaMailSender;
+        this.remetent = remetent;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.leaseMs = leaseMs;
+
+        Gauge.builder("library.mail.outbox.size", pending, AtomicLong::get)
+                .description("Mensagens na outbox por status")
+                .tag("status", "pending")
+                .register(registry);
+        Gauge.builder("library.mail.outbox.size", dead, AtomicLong::get)
+                .description("Mensagens na outbox por status")
+                .tag("status", "dead")
+                .register(registry);
+        this.sendTimer = Timer.builder("library.mail.send")
+                .description("Tempo de envio de um lote de emails ao servidor SMTP")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.sentCounter = Counter.builder("library.mail.sent").register(registry);
+        this.failedCounter = Counter.builder("library.mail.failed").register(registry);
+        this.deadCounter = Counter.builder("library.mail.dead").register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${application.mail.outbox.poll-interval-ms:5000}")
+    public void dispatch(){
+        int claimed;
+        do {
+            //Token próprio por lote: só as mensagens reservadas por ele são enviadas aqui.
+            //Se o nó cair no meio do envio, a reserva expira e o lote volta para a fila (pode haver reenvio)
+            String owner = UUID.randomUUID().toString();
+            LocalDateTime now = LocalDateTime.now();
+            claimed = outboxRepository.claim(owner, now, now.plus(Duration.ofMillis(leaseMs)), batchSize);
+            if(claimed > 0){
+                sendBatch(outboxRepository.findByClaimedByAndStatusOrderById(owner, EmailOutbox.Status.PENDING));
+            }
+        } while (claimed == batchSize);
+
+        pending.set(outboxRepository.countByStatus(EmailOutbox.Status.PENDING));
+        dead.set(outboxRepository.countByStatus(EmailOutbox.Status.DEAD));
+    }
+
+    private void sendBatch(List<EmailOutbox> batch){
+        SimpleMailMessage[] mailMessages = batch.stream().map(this::toMailMessage).toArray(SimpleMailMessage[]::new);
+
+        Map<Object, Exception> failures = Collections.emptyMap();
+        Timer.Sample sample = Timer.start();
+        try {
+            javaMailSender.send(mailMessages);
+        } catch (MailSendException e) {
+            //Falha parcial: o Spring informa quais mensagens não foram enviadas
+            failures = e.getFailedMessages().isEmpty() ? allFailed(mailMessages, e) : e.getFailedMessages();
+        } catch (MailException e) {
+            failures = allFailed(mailMessages, e);
+        } finally {
+            sample.stop(sendTimer);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < mailMessages.length; i++) {
+            EmailOutbox outbox = batch.get(i);
+            outbox.setClaimedBy(null);
+            Exception failure = failures.get(mailMessages[i]);
+            if(failure == null){
+                outbox.setStatus(EmailOutbox.Status.SENT);
+                outbox.setSentAt(now);
+                sentCounter.increment();
+            } else {
+                failed(outbox, failure, now);
+            }
+        }
+        outboxRepository.saveAll(batch);
+    }
+
+    private void failed(EmailOutbox outbox, Exception failure, LocalDateTime now){
+        outbox.setAttempts(outbox.getAttempts() + 1);
+        outbox.setLastError(truncate(String.valueOf(failure.getMessage())));
+        failedCounter.increment();
+        if(outbox.getAttempts() >= maxAttempts){
+            outbox.setStatus(EmailOutbox.Status.DEAD);
+            deadCounter.increment();
+            log.error("Email {} to {} dead after {} attempts: {}", outbox.getId(), outbox.getRecipient(), outbox.getAttempts(), failure.getMessage());
+        } else {
+            outbox.setNextAttemptAt(now.plus(Duration.ofMillis(backoffMs(outbox.getAttempts()))));
+        }
+    }
+
+    private long backoffMs(int attempts){
+        //initial, 2x, 4x ... limitado ao máximo
+        long backoff = initialBackoffMs << Math.min(attempts - 1, 30);
+        return backoff <= 0 ? maxBackoffMs : Math.min(backoff, maxBackoffMs);
+    }
+
+    private SimpleMailMessage toMailMessage(EmailOutbox outbox){
+        SimpleMailMessage mailMessage = new SimpleMailMessage();
+        mailMessage.setFrom(remetent);
+        mailMessage.setTo(outbox.getRecipient());
+        mailMessage.setSubject(outbox.getSubject());
+        mailMessage.setText(outbox.getBody());
+        return mailMessage;
+    }
+
+    private static Map<Object, Exception> allFailed(SimpleMailMessage[] mailMessages, Exception e){
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        for (SimpleMailMessage mailMessage : mailMessages) {
+            failures.put(mailMessage, e);
+        }
+        return failures;
+    }
+
+    private static String truncate(String error){
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
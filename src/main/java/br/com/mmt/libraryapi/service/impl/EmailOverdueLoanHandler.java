@@ -0,0 +1,44 @@
+package br.com.mmt.libraryapi.service.impl;
+
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.service.EmailService;
+import br.com.mmt.libraryapi.service.OverdueLoanHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Envia um email por customer com os livros que acabaram de vencer, com o mesmo texto da notificação diária.
+ */
+@Component
+public class EmailOverdueLoanHandler implements OverdueLoanHandler {
+
+    private final EmailService emailService;
+    private final String mensagem;
+
+    public EmailOverdueLoanHandler(EmailService emailService,
+                                   @Value("${application.mail.lateloans.message}") String mensagem) {
+        this.emailService = emailService;
+        this.mensagem = mensagem;
+    }
+
+    @Override
+    public void onOverdue(List<Loan> loans) {
+        Map<String, List<Loan>> loansByEmail = new LinkedHashMap<>();
+        for (Loan loan : loans) {
+            if(loan.getCustomerEmail() != null){
+                loansByEmail.computeIfAbsent(loan.getCustomerEmail(), email -> new ArrayList<>()).add(loan);
+            }
+        }
+        if(loansByEmail.isEmpty()){
+            return;
+        }
+        Map<String, String> messages = new LinkedHashMap<>();
+        loansByEmail.forEach((email, customerLoans) -> messages.put(email, ScheduleService.message(mensagem, customerLoans)));
+        emailService.sendMails(messages);
+    }
+}
@@ -1,32 +1,56 @@
 package br.com.mmt.libraryapi.service.impl;
 
+import br.com.mmt.libraryapi.config.metrics.MetricsConfig;
+import br.com.mmt.libraryapi.model.entity.EmailOutbox;
+import br.com.mmt.libraryapi.model.repository.EmailOutboxRepository;
 import br.com.mmt.libraryapi.service.EmailService;
-import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
+/**
+ * Não fala com o servidor SMTP: grava as mensagens na outbox e o EmailDispatcher faz o envio.
+ */
 @Service
-@RequiredArgsConstructor
 public class EmailServiceImpl implements EmailService {
 
-    private final JavaMailSender javaMailSender;
+    static final String SUBJECT = "Livro com emprestimo atrasado.";
 
-    @Value("${application.mail.default-rementent}")
-    private String remetent;
+    private final EmailOutboxRepository outboxRepository;
+
+    public EmailServiceImpl(EmailOutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
+    }
 
     @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
     public void sendMails(String mensagem, List<String> mailList) {
-        SimpleMailMessage mailMessage = new SimpleMailMessage();
-        String[] emails = mailList.toArray(new String[mailList.size()]);
-        mailMessage.setFrom(remetent);
-        mailMessage.setSubject("Livro com emprestimo atrasado.");
-        mailMessage.setText(mensagem);
-        mailMessage.setTo(emails);
-
-        javaMailSender.send(mailMessage);
+        //Uma mensagem por destinatário para não expor o email de um customer aos demais
+        Map<String, String> messagesByEmail = new LinkedHashMap<>();
+        mailList.forEach(email -> messagesByEmail.put(email, mensagem));
+        sendMails(messagesByEmail);
+    }
+
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @Transactional
+    public void sendMails(Map<String, String> messagesByEmail) {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutbox> messages = messagesByEmail.entrySet().stream().map(entry -> EmailOutbox.builder()
+                .recipient(entry.getKey())
+                .subject(SUBJECT)
+                .body(entry.getValue())
+                .status(EmailOutbox.Status.PENDING)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build()
+        ).collect(Collectors.toList());
+        outboxRepository.saveAll(messages);
     }
 }
@@ -0,0 +1,55 @@
+package br.com.mmt.libraryapi.service.impl;
+
+import br.com.mmt.libraryapi.api.dto.LoanFilterDTO;
+import br.com.mmt.libraryapi.config.metrics.MetricsConfig;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.model.repository.BookRepository;
+import br.com.mmt.libraryapi.model.repository.LoanRepository;
+import br.com.mmt.libraryapi.service.ExportService;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Exportação em uma única passada: percorre o cursor da base e desanexa cada entidade depois de entregue,
+ * para que o contexto de persistência não cresça com o tamanho da exportação.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportServiceImpl implements ExportService {
+
+    private final LoanRepository loanRepository;
+    private final BookRepository bookRepository;
+    private final EntityManager entityManager;
+
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @Transactional(readOnly = true)
+    public void exportLoans(LoanFilterDTO filter, Consumer<Loan> consumer) {
+        try (Stream<Loan> loans = loanRepository.streamByBookIsbnOrCustomer(filter.getIsbn(), filter.getCustomer())) {
+            loans.forEach(loan -> {
+                consumer.accept(loan);
+                entityManager.detach(loan);
+                entityManager.detach(loan.getBook());
+            });
+        }
+    }
+
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @Transactional(readOnly = true)
+    public void exportBooks(Consumer<Book> consumer) {
+        try (Stream<Book> books = bookRepository.streamAll()) {
+            books.forEach(book -> {
+                consumer.accept(book);
+                entityManager.detach(book);
+            });
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package br.com.mmt.libraryapi.service.impl;
+
+import br.com.mmt.libraryapi.api.dto.LoanBatchItemDTO;
+import br.com.mmt.libraryapi.api.dto.LoanBatchResultDTO;
+import br.com.mmt.libraryapi.api.dto.LoanDTO;
+import br.com.mmt.libraryapi.api.dto.LoanReturnItemDTO;
+import br.com.mmt.libraryapi.api.dto.LoanReturnRequestDTO;
+import br.com.mmt.libraryapi.api.dto.LoanReturnResultDTO;
+import br.com.mmt.libraryapi.config.metrics.MetricsConfig;
+import br.com.mmt.libraryapi.exceptions.BusinessException;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.model.repository.BookRepository;
+import br.com.mmt.libraryapi.model.repository.LoanRepository;
+import br.com.mmt.libraryapi.model.repository.LoanRepository.LoanState;
+import br.com.mmt.libraryapi.service.LoanBatchService;
+import br.com.mmt.libraryapi.service.LoanStatisticsService;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Operações de emprestimo em lote: resolvem todos os itens com poucas consultas IN
+ * e gravam tudo de uma vez, em vez de uma requisição e um save por emprestimo.
+ */
+@Service
+@Slf4j
+public class LoanBatchServiceImpl implements LoanBatchService {
+
+    private static final String INSERT_LOAN =
+            "insert into loan (book_id, customer, customer_email, loan_date, active_book_id, version) values (?, ?, ?, ?, ?, 0)";
+    private static final String BOOK_NOT_FOUND = "Book not found for passed isbn.";
+    private static final String ALREADY_LOANED = "Book already loaned.";
+
+    private final LoanRepository repository;
+    private final BookRepository bookRepository;
+    private final ActiveLoanIndex activeLoans;
+    private final LoanStatisticsService statistics;
+    private final OverdueLoanTracker overdueLoans;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter alreadyLoaned;
+    private final int maxBatchSize;
+
+    public LoanBatchServiceImpl(LoanRepository repository,
+                                BookRepository bookRepository,
+                                ActiveLoanIndex activeLoans,
+                                LoanStatisticsService statistics,
+                                OverdueLoanTracker overdueLoans,
+                                JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry registry,
+                                @Value("${application.loans.batch.max-size:1000}") int maxBatchSize) {
+        this.repository = repository;
+        this.bookRepository = bookRepository;
+        this.activeLoans = activeLoans;
+        this.statistics = statistics;
+        this.overdueLoans = overdueLoans;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.alreadyLoaned = registry.counter(MetricsConfig.BUSINESS_REJECTIONS, "reason", "book_already_loaned");
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    public LoanBatchResultDTO createLoans(List<LoanDTO> loans) {
+        checkSize(loans.size());
+        LoanBatchItemDTO[] items = new LoanBatchItemDTO[loans.size()];
+        List<PendingLoan> pending = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+
+        Boolean batched = transactionTemplate.execute(status -> {
+            resolve(loans, items, pending);
+            try {
+                jdbcTemplate.batchUpdate(INSERT_LOAN, pending.stream().map(loan -> loan.args(today)).collect(Collectors.toList()));
+                statistics.loansCreated(pending.stream().map(loan -> loan.toLoan(today)).collect(Collectors.toList()));
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                //Outro emprestimo ativo foi gravado depois da consulta: desfaz o lote e grava linha a linha
+                status.setRollbackOnly();
+                return false;
+            }
+        });
+        if(!Boolean.TRUE.equals(batched)){
+            insertOneByOne(pending, items, today);
+        }
+
+        //O JDBC batch não devolve os ids gerados: como cada livro tem um único emprestimo ativo, resolve por active_book_id
+        if(!pending.isEmpty()){
+            Map<Long, Integer> indexByBook = pending.stream().collect(Collectors.toMap(loan -> loan.bookId, loan -> loan.index));
+            List<LoanRepository.ActiveLoan> created = repository.findActiveLoansByBookIdIn(indexByBook.keySet());
+            created.forEach(active -> items[indexByBook.get(active.getBookId())].setId(active.getLoanId()));
+            activeLoans.registerAll(created);
+            overdueLoans.registerAll(created.stream().map(LoanRepository.ActiveLoan::getLoanId).collect(Collectors.toList()), today);
+        }
+
+        LoanBatchResultDTO result = new LoanBatchResultDTO();
+        for (LoanBatchItemDTO item : items) {
+            result.setProcessed(result.getProcessed() + 1);
+            if(item.getError() == null){
+                result.setCreated(result.getCreated() + 1);
+            } else {
+                result.setFailed(result.getFailed() + 1);
+            }
+            result.getItems().add(item);
+        }
+        log.info("Loan batch creation finished: {} processed, {} created, {} failed",
+                result.getProcessed(), result.getCreated(), result.getFailed());
+        return result;
+    }
+
+    private void resolve(List<LoanDTO> loans, LoanBatchItemDTO[] items, List<PendingLoan> pending) {
+        pending.clear();
+        Set<String> isbns = loans.stream().map(LoanDTO::getIsbn).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<String, Long> bookIds = isbns.isEmpty() ? Collections.emptyMap()
+                : bookRepository.findByIsbnIn(isbns).stream().collect(Collectors.toMap(Book::getIsbn, Book::getId, (first, second) -> first));
+        //Livros com emprestimo ativo na base, mais os emprestados por linhas anteriores do lote
+        Set<Long> loaned = bookIds.isEmpty() ? new HashSet<>()
+                : repository.findActiveLoansByBookIdIn(bookIds.values()).stream()
+                .map(LoanRepository.ActiveLoan::getBookId)
+                .collect(Collectors.toCollection(HashSet::new));
+
+        for (int i = 0; i < loans.size(); i++) {
+            LoanDTO loan = loans.get(i);
+            items[i] = LoanBatchItemDTO.builder().index(i).isbn(loan.getIsbn()).build();
+            Long bookId = loan.getIsbn() == null ? null : bookIds.get(loan.getIsbn());
+            if(bookId == null){
+                items[i].setError(BOOK_NOT_FOUND);
+            } else if(!loaned.add(bookId)){
+                alreadyLoaned.increment();
+                items[i].setError(ALREADY_LOANED);
+            } else {
+                pending.add(new PendingLoan(i, bookId, loan));
+            }
+        }
+    }
+
+    private void insertOneByOne(List<PendingLoan> pending, LoanBatchItemDTO[] items, LocalDate today) {
+        //Cada insert na sua transação, para que só as linhas que violam a constraint falhem
+        Iterator<PendingLoan> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            PendingLoan loan = iterator.next();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.update(INSERT_LOAN, loan.args(today));
+                    statistics.loansCreated(Collections.singletonList(loan.toLoan(today)));
+                });
+            } catch (DataIntegrityViolationException e) {
+                alreadyLoaned.increment();
+                items[loan.index].setError(ALREADY_LOANED);
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    @Transactional
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    public LoanReturnResultDTO returnLoans(LoanReturnRequestDTO request) {
+        Set<Long> ids = distinct(request.getIds());
+        Set<String> isbns = distinct(request.getIsbns());
+        checkSize(ids.size() + isbns.size());
+
+        Map<Long, LoanState> byId = ids.isEmpty() ? Collections.emptyMap()
+                : repository.findStatesByIdIn(ids).stream().collect(Collectors.toMap(LoanState::getLoanId, Function.identity()));
+        Map<String, LoanState> byIsbn = isbns.isEmpty() ? Collections.emptyMap()
+                : repository.findActiveStatesByIsbnIn(isbns).stream().collect(Collectors.toMap(LoanState::getIsbn, Function.identity(), (first, second) -> first));
+        //Isbn sem emprestimo ativo: já devolvido se o livro existe, senão não encontrado
+        Set<String> withoutActiveLoan = isbns.stream().filter(isbn -> !byIsbn.containsKey(isbn)).collect(Collectors.toSet());
+        Set<String> knownIsbns = withoutActiveLoan.isEmpty() ? Collections.emptySet()
+                : bookRepository.findExistingIsbns(withoutActiveLoan);
+
+        LoanReturnResultDTO result = new LoanReturnResultDTO();
+        Map<Long, LoanState> toReturn = new LinkedHashMap<>();
+        for (Long id : ids) {
+            LoanState state = byId.get(id);
+            LoanReturnItemDTO item = LoanReturnItemDTO.builder().id(id).build();
+            if(state == null){
+                item.setStatus(LoanReturnItemDTO.Status.NOT_FOUND);
+            } else {
+                item.setLoanId(state.getLoanId());
+                item.setStatus(status(state, toReturn));
+            }
+            add(result, item);
+        }
+        for (String isbn : isbns) {
+            LoanState state = byIsbn.get(isbn);
+            LoanReturnItemDTO item = LoanReturnItemDTO.builder().isbn(isbn).build();
+            if(state == null){
+                item.setStatus(knownIsbns.contains(isbn) ? LoanReturnItemDTO.Status.ALREADY_RETURNED : LoanReturnItemDTO.Status.NOT_FOUND);
+            } else {
+                item.setLoanId(state.getLoanId());
+                item.setStatus(status(state, toReturn));
+            }
+            add(result, item);
+        }
+
+        if(!toReturn.isEmpty()){
+            int updated = repository.markReturned(toReturn.keySet());
+            if(updated != toReturn.size()){
+                log.warn("Loan batch return: {} loans expected, {} updated (returned concurrently)", toReturn.size(), updated);
+            }
+            List<Long> bookIds = toReturn.values().stream().map(LoanState::getBookId).collect(Collectors.toList());
+            AfterCommit.run(() -> {
+                activeLoans.evictAll(bookIds);
+                overdueLoans.removeAll(toReturn.keySet());
+            });
+            if(updated == toReturn.size()){
+                statistics.loansReturned(toReturn.values().stream().map(LoanBatchServiceImpl::toLoan).collect(Collectors.toList()));
+            } else {
+                //Não dá para saber quais foram devolvidos por outra transação: a reconciliação corrige os contadores
+                log.warn("Loan statistics of this batch return left to the next reconciliation");
+            }
+        }
+        log.info("Loan batch return finished: {} processed, {} returned, {} failed",
+                result.getProcessed(), result.getReturned(), result.getFailed());
+        return result;
+    }
+
+    private LoanReturnItemDTO.Status status(LoanState state, Map<Long, LoanState> toReturn) {
+        //O mesmo emprestimo pedido pelo id e pelo isbn só é devolvido uma vez
+        if(Boolean.TRUE.equals(state.getReturned()) || toReturn.containsKey(state.getLoanId())){
+            return LoanReturnItemDTO.Status.ALREADY_RETURNED;
+        }
+        toReturn.put(state.getLoanId(), state);
+        return LoanReturnItemDTO.Status.RETURNED;
+    }
+
+    private void add(LoanReturnResultDTO result, LoanReturnItemDTO item) {
+        result.setProcessed(result.getProcessed() + 1);
+        if(item.getStatus() == LoanReturnItemDTO.Status.RETURNED){
+            result.setReturned(result.getReturned() + 1);
+        } else {
+            result.setFailed(result.getFailed() + 1);
+        }
+        result.getItems().add(item);
+    }
+
+    private void checkSize(int size) {
+        if(size > maxBatchSize){
+            throw new BusinessException("Batch limited to " + maxBatchSize + " loans.");
+        }
+    }
+
+    private static Loan toLoan(LoanState state) {
+        return Loan.builder()
+                .id(state.getLoanId())
+                .book(Book.builder().id(state.getBookId()).build())
+                .customer(state.getCustomer())
+                .loanDate(state.getLoanDate())
+                .build();
+    }
+
+    private static <T> Set<T> distinct(List<T> values) {
+        if(values == null){
+            return Collections.emptySet();
+        }
+        return values.stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static class PendingLoan {
+        private final int index;
+        private final Long bookId;
+        private final LoanDTO loan;
+
+        PendingLoan(int index, Long bookId, LoanDTO loan) {
+            this.index = index;
+            this.bookId = bookId;
+            this.loan = loan;
+        }
+
+        Object[] args(LocalDate loanDate) {
+            return new Object[]{bookId, loan.getCustomer(), loan.getCustomerEmail(), Date.valueOf(loanDate), bookId};
+        }
+
+        Loan toLoan(LocalDate loanDate) {
+            return Loan.builder()
+                    .book(Book.builder().id(bookId).build())
+                    .customer(loan.getCustomer())
+                    .loanDate(loanDate)
+                    .build();
+        }
+    }
+}
@@ -1,61 +1,215 @@
 package br.com.mmt.libraryapi.service.impl;
 
 import br.com.mmt.libraryapi.api.dto.LoanFilterDTO;
+import br.com.mmt.libraryapi.config.datasource.ReadFromReplica;
+import br.com.mmt.libraryapi.config.metrics.MetricsConfig;
 import br.com.mmt.libraryapi.exceptions.BusinessException;
 import br.com.mmt.libraryapi.model.entity.Book;
 import br.com.mmt.libraryapi.model.entity.Loan;
 import br.com.mmt.libraryapi.model.repository.LoanRepository;
 import br.com.mmt.libraryapi.service.LoanService;
+import br.com.mmt.libraryapi.service.LoanStatisticsService;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class LoanServiceImpl implements LoanService {
 
+    static final int LOAN_DAYS = 4;
+
     private LoanRepository repository;
 
-    public LoanServiceImpl(LoanRepository repository) {
+    private ActiveLoanIndex activeLoans;
+
+    private CountEstimator countEstimator;
+
+    private LoanStatisticsService statistics;
+
+    private OverdueLoanTracker overdueLoans;
+
+    private Counter alreadyLoaned;
+
+    public LoanServiceImpl(LoanRepository repository, ActiveLoanIndex activeLoans, CountEstimator countEstimator,
+                           LoanStatisticsService statistics, OverdueLoanTracker overdueLoans, MeterRegistry registry) {
         this.repository = repository;
+        this.activeLoans = activeLoans;
+        this.countEstimator = countEstimator;
+        this.statistics = statistics;
+        this.overdueLoans = overdueLoans;
+        this.alreadyLoaned = registry.counter(MetricsConfig.BUSINESS_REJECTIONS, "reason", "book_already_loaned");
     }
 
     @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    //Transação de escrita: a verificação de disponibilidade precisa ler do primário, nunca de um replica atrasado
+    @Transactional
     public Loan save(Loan loan) {
-        if(repository.existsByBookAndNotReturned(loan.getBook())){
-            throw new BusinessException("Book already loaned.");
+        Book book = loan.getBook();
+        //Só consulta a base quando o índice aponta o livro como emprestado (a entrada pode estar desatualizada por outro nó)
+        if(activeLoans.isLoaned(book.getId())){
+            if(repository.existsByBookAndNotReturned(book)){
+                alreadyLoaned.increment();
+                throw new BusinessException("Book already loaned.");
+            }
+            activeLoans.evict(book.getId());
         }
-        return repository.save(loan);
+        Loan savedLoan = saveActiveLoan(loan);
+        AfterCommit.run(() -> {
+            activeLoans.register(savedLoan);
+            overdueLoans.register(savedLoan);
+        });
+        statistics.loansCreated(Collections.singletonList(savedLoan));
+        return savedLoan;
     }
 
     @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    //Sem @ReadFromReplica: é a leitura feita antes de devolver o emprestimo, e um emprestimo recém criado ainda pode faltar no replica
     public Optional<Loan> getById(Long id) {
         return repository.findById(id);
     }
 
     @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @Transactional
     public Loan update(Loan loan) {
-        return repository.save(loan);
+        //active_book_id ainda tem o estado lido da base: só é recalculado ao gravar
+        boolean wasActive = loan.getActiveBookId() != null;
+        Loan updatedLoan = saveActiveLoan(loan);
+        AfterCommit.run(() -> {
+            activeLoans.register(updatedLoan);
+            overdueLoans.register(updatedLoan);
+        });
+        boolean active = !Boolean.TRUE.equals(updatedLoan.getReturned());
+        if(wasActive && !active){
+            statistics.loansReturned(Collections.singletonList(updatedLoan));
+        } else if(!wasActive && active){
+            statistics.loansReopened(Collections.singletonList(updatedLoan));
+        }
+        return updatedLoan;
+    }
+
+    private Loan saveActiveLoan(Loan loan) {
+        try {
+            Loan savedLoan = repository.save(loan);
+            //Dentro da transação do service o update só iria para a base no commit, fora deste try
+            repository.flush();
+            return savedLoan;
+        } catch (DataIntegrityViolationException e) {
+            //Violação da constraint unique de active_book_id: outro emprestimo ativo foi gravado antes
+            alreadyLoaned.increment();
+            throw new BusinessException("Book already loaned.");
+        }
     }
 
     @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
     public Page<Loan> find(LoanFilterDTO filter, Pageable pageable) {
+        //Com um só filtro a consulta usa o índice da coluna (isbn ou customer); sem filtro nada casa
+        if(filter.getIsbn() == null){
+            return filter.getCustomer() == null ? Page.empty(pageable) : repository.findByCustomer(filter.getCustomer(), pageable);
+        }
+        if(filter.getCustomer() == null){
+            return repository.findByBookIsbn(filter.getIsbn(), pageable);
+        }
         return repository.findhByBookIsbnOrCustomer(filter.getIsbn(), filter.getCustomer(), pageable);
     }
 
     @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
+    public Slice<Loan> findSlice(LoanFilterDTO filter, Pageable pageable) {
+        if(filter.getIsbn() == null){
+            return filter.getCustomer() == null ? new SliceImpl<>(Collections.emptyList(), pageable, false)
+                    : repository.findSliceByCustomer(filter.getCustomer(), pageable);
+        }
+        if(filter.getCustomer() == null){
+            return repository.findSliceByBookIsbn(filter.getIsbn(), pageable);
+        }
+        return repository.findSliceByBookIsbnOrCustomer(filter.getIsbn(), filter.getCustomer(), pageable);
+    }
+
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
+    public Page<Loan> findEstimated(LoanFilterDTO filter, Pageable pageable) {
+        String isbn = filter.getIsbn();
+        String customer = filter.getCustomer();
+        return countEstimator.page(findSlice(filter, pageable), () -> count(isbn, customer), "loan", isbn, customer);
+    }
+
+    private long count(String isbn, String customer) {
+        if(isbn == null){
+            return customer == null ? 0 : repository.countByCustomer(customer);
+        }
+        if(customer == null){
+            return repository.countByBookIsbn(isbn);
+        }
+        return repository.countByBookIsbnOrCustomer(isbn, customer);
+    }
+
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
+    public Slice<Loan> findAfter(LoanFilterDTO filter, Long afterId, int size) {
+        return repository.findhByBookIsbnOrCustomerAfter(filter.getIsbn(), filter.getCustomer(),
+                afterId == null ? 0L : afterId, PageRequest.of(0, size));
+    }
+
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
     public Page<Loan> getLoansByBook(Book book, Pageable pageable) {
         return repository.findByBook(book, pageable);
     }
 
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
+    public Slice<Loan> getLoansByBookAfter(Book book, Long afterId, int size) {
+        return repository.findByBookAndIdGreaterThanOrderById(book, afterId == null ? 0L : afterId, PageRequest.of(0, size));
+    }
+
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
     public List<Loan> getAllLateLoans(){
 
-        final Integer loanDays = 4;
-        LocalDate trheeDaysAgo = LocalDate.now().minusDays(loanDays);
+        LocalDate trheeDaysAgo = LocalDate.now().minusDays(LOAN_DAYS);
         return repository.findByLoanDateLessThanAndNotReturned(trheeDaysAgo);
 
     }
+
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
+    public long countLateLoans(LocalDate referenceDate) {
+        return repository.countLateLoans(referenceDate.minusDays(LOAN_DAYS));
+    }
+
+    @Override
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    @ReadFromReplica
+    public List<Loan> getLateLoansAfter(LocalDate referenceDate, String afterEmail, Long afterId, int size) {
+        return repository.findLateLoansAfter(
+                referenceDate.minusDays(LOAN_DAYS),
+                afterEmail == null ? "" : afterEmail,
+                afterId == null ? 0L : afterId,
+                PageRequest.of(0, size));
+    }
 }
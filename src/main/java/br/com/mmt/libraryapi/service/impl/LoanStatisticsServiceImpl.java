@@ -0,0 +1,247 @@
+package br.com.mmt.libraryapi.service.impl;
+
+import br.com.mmt.libraryapi.api.dto.BookLoanStatsDTO;
+import br.com.mmt.libraryapi.api.dto.CustomerLoanStatsDTO;
+import br.com.mmt.libraryapi.api.dto.DailyLoanStatsDTO;
+import br.com.mmt.libraryapi.config.datasource.ReadFromReplica;
+import br.com.mmt.libraryapi.config.metrics.MetricsConfig;
+import br.com.mmt.libraryapi.exceptions.BusinessException;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.service.LoanStatisticsService;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Contadores de emprestimos em tabelas de resumo (loan_stats_*), atualizados na mesma transação que grava o emprestimo.
+ * A leitura é uma linha por chave, independente do tamanho do histórico.
+ * A reconciliação diária recalcula os contadores a partir da tabela loan: corrige desvios e move os emprestimos
+ * que passaram a estar atrasados, já que o atraso só muda com a virada do dia ou com uma devolução.
+ */
+@Slf4j
+@Service
+public class LoanStatisticsServiceImpl implements LoanStatisticsService {
+
+    static final int MAX_DAILY_PERIOD_DAYS = 366;
+
+    private static final String UPDATE_BOOK =
+            "update loan_stats_book set total_loans = total_loans + ?, active_loans = active_loans + ? where book_id = ?";
+    private static final String INSERT_BOOK =
+            "insert into loan_stats_book (total_loans, active_loans, book_id) values (?, ?, ?)";
+    private static final String UPDATE_CUSTOMER =
+            "update loan_stats_customer set active_loans = active_loans + ?, overdue_loans = overdue_loans + ? where customer = ?";
+    private static final String INSERT_CUSTOMER =
+            "insert into loan_stats_customer (active_loans, overdue_loans, customer) values (?, ?, ?)";
+    private static final String UPDATE_DAILY =
+            "update loan_stats_daily set loans = loans + ?, returns = returns + ? where stat_date = ?";
+    private static final String INSERT_DAILY =
+            "insert into loan_stats_daily (loans, returns, stat_date) values (?, ?, ?)";
+
+    private static final String ACTIVE = "(returned is null or returned = false)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public LoanStatisticsServiceImpl(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    @Transactional
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    public void loansCreated(Collection<Loan> loans) {
+        Delta delta = new Delta();
+        for (Loan loan : loans) {
+            delta.book(loan, 1, 1);
+            delta.customer(loan, 1);
+            delta.day(loan.getLoanDate(), 1, 0);
+        }
+        apply(delta);
+    }
+
+    @Override
+    @Transactional
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    public void loansReturned(Collection<Loan> loans) {
+        Delta delta = new Delta();
+        for (Loan loan : loans) {
+            delta.book(loan, 0, -1);
+            delta.customer(loan, -1);
+            delta.day(delta.today, 0, 1);
+        }
+        apply(delta);
+    }
+
+    @Override
+    @Transactional
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    public void loansReopened(Collection<Loan> loans) {
+        //Devolução desfeita: volta a contar como ativo, sem mexer nas devoluções do dia
+        Delta delta = new Delta();
+        for (Loan loan : loans) {
+            delta.book(loan, 0, 1);
+            delta.customer(loan, 1);
+        }
+        apply(delta);
+    }
+
+    @Override
+    @ReadFromReplica
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    public BookLoanStatsDTO getBookStats(Long bookId) {
+        BookLoanStatsDTO stats = BookLoanStatsDTO.builder().bookId(bookId).build();
+        jdbcTemplate.query("select total_loans, active_loans from loan_stats_book where book_id = ?", rs -> {
+            stats.setTotalLoans(Math.max(0, rs.getLong("total_loans")));
+            stats.setActiveLoans(Math.max(0, rs.getLong("active_loans")));
+        }, bookId);
+        return stats;
+    }
+
+    @Override
+    @ReadFromReplica
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    public CustomerLoanStatsDTO getCustomerStats(String customer) {
+        CustomerLoanStatsDTO stats = CustomerLoanStatsDTO.builder().customer(customer).build();
+        jdbcTemplate.query("select active_loans, overdue_loans from loan_stats_customer where customer = ?", rs -> {
+            stats.setActiveLoans(Math.max(0, rs.getLong("active_loans")));
+            stats.setOverdueLoans(Math.max(0, rs.getLong("overdue_loans")));
+        }, customer);
+        return stats;
+    }
+
+    @Override
+    @ReadFromReplica
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    public List<DailyLoanStatsDTO> getDailyStats(LocalDate from, LocalDate to) {
+        if(from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_DAILY_PERIOD_DAYS){
+            throw new BusinessException("Period limited to " + MAX_DAILY_PERIOD_DAYS + " days.");
+        }
+        return jdbcTemplate.query(
+                "select stat_date, loans, returns from loan_stats_daily where stat_date between ? and ? order by stat_date",
+                (rs, rowNum) -> DailyLoanStatsDTO.builder()
+                        .date(rs.getDate("stat_date").toLocalDate())
+                        .loans(Math.max(0, rs.getLong("loans")))
+                        .returns(Math.max(0, rs.getLong("returns")))
+                        .build(),
+                Date.valueOf(from), Date.valueOf(to));
+    }
+
+    @Override
+    @Scheduled(cron = "${application.loans.stats.reconcile-cron:0 5 0 * * ?}")
+    @Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+    public void reconcile() {
+        //Atualizações concorrentes à reconciliação podem ficar de fora; a próxima execução corrige
+        Date overdueUntil = Date.valueOf(LocalDate.now().minusDays(LoanServiceImpl.LOAN_DAYS));
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from loan_stats_book");
+            jdbcTemplate.update("insert into loan_stats_book (book_id, total_loans, active_loans) " +
+                    "select book_id, count(*), sum(case when " + ACTIVE + " then 1 else 0 end) " +
+                    "from loan where book_id is not null group by book_id");
+
+            jdbcTemplate.update("delete from loan_stats_customer");
+            jdbcTemplate.update("insert into loan_stats_customer (customer, active_loans, overdue_loans) " +
+                    "select customer, count(*), sum(case when loan_date <= ? then 1 else 0 end) " +
+                    "from loan where customer is not null and " + ACTIVE + " group by customer", overdueUntil);
+
+            //Não há data de devolução na tabela loan: só os emprestimos do dia são recalculados
+            jdbcTemplate.update("update loan_stats_daily d set loans = " +
+                    "(select count(*) from loan l where l.loan_date = d.stat_date)");
+            jdbcTemplate.update("insert into loan_stats_daily (stat_date, loans, returns) " +
+                    "select loan_date, count(*), 0 from loan l where loan_date is not null " +
+                    "and not exists (select 1 from loan_stats_daily d where d.stat_date = l.loan_date) group by loan_date");
+        });
+        log.info("Loan statistics reconciled in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Base existente antes das tabelas de resumo: calcula os contadores na subida em vez de esperar a reconciliação diária.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileIfEmpty() {
+        Boolean missing = jdbcTemplate.queryForObject(
+                "select exists (select 1 from loan) and not exists (select 1 from loan_stats_daily)", Boolean.class);
+        if(Boolean.TRUE.equals(missing)){
+            reconcile();
+        }
+    }
+
+    private void apply(Delta delta) {
+        upsert(UPDATE_BOOK, INSERT_BOOK, delta.books, Function.identity());
+        upsert(UPDATE_CUSTOMER, INSERT_CUSTOMER, delta.customers, Function.identity());
+        upsert(UPDATE_DAILY, INSERT_DAILY, delta.days, Date::valueOf);
+    }
+
+    private <K> void upsert(String update, String insert, Map<K, long[]> deltas, Function<? super K, ?> toColumn) {
+        if(deltas.isEmpty()){
+            return;
+        }
+        //Update e insert recebem os argumentos na mesma ordem: os dois contadores e a chave
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((key, values) -> args.add(new Object[]{values[0], values[1], toColumn.apply(key)}));
+        int[] updated = jdbcTemplate.batchUpdate(update, args);
+        for (int i = 0; i < updated.length; i++) {
+            if(updated[i] == 0){
+                try {
+                    jdbcTemplate.update(insert, args.get(i));
+                } catch (DuplicateKeyException e) {
+                    //Outra transação criou a linha entre o update e o insert
+                    jdbcTemplate.update(update, args.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Variação dos contadores de uma operação, somada por chave antes de ir para a base.
+     */
+    private static class Delta {
+        private final LocalDate today = LocalDate.now();
+        private final LocalDate overdueUntil = today.minusDays(LoanServiceImpl.LOAN_DAYS);
+        private final Map<Long, long[]> books = new HashMap<>();
+        private final Map<String, long[]> customers = new HashMap<>();
+        private final Map<LocalDate, long[]> days = new HashMap<>();
+
+        void book(Loan loan, long total, long active) {
+            if(loan.getBook() != null){
+                add(books, loan.getBook().getId(), total, active);
+            }
+        }
+
+        void customer(Loan loan, long active) {
+            boolean overdue = loan.getLoanDate() != null && !loan.getLoanDate().isAfter(overdueUntil);
+            add(customers, loan.getCustomer(), active, overdue ? active : 0);
+        }
+
+        void day(LocalDate date, long loans, long returns) {
+            add(days, date, loans, returns);
+        }
+
+        private static <K> void add(Map<K, long[]> deltas, K key, long first, long second) {
+            if(key == null){
+                return;
+            }
+            long[] values = deltas.computeIfAbsent(key, k -> new long[2]);
+            values[0] += first;
+            values[1] += second;
+        }
+    }
+}
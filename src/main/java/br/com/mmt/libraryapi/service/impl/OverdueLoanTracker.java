@@ -0,0 +1,296 @@
+package br.com.mmt.libraryapi.service.impl;
+
+import br.com.mmt.libraryapi.model.entity.LateLoanNotificationRun;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.model.repository.LateLoanNotificationRunRepository;
+import br.com.mmt.libraryapi.model.repository.LoanRepository;
+import br.com.mmt.libraryapi.service.OverdueLoanHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Fila de vencimentos dos emprestimos ativos (data de vencimento -> emprestimos), mantida na criação e na devolução.
+ * A fila só decide quando acordar: um único disparo fica agendado para o início do próximo vencimento.
+ * Ao disparar, cada data vencida é reservada em late_loan_notification_run e os emprestimos daquele vencimento
+ * são lidos da base pelo índice de loan_date, incluindo os criados por outros nós, e entregues aos OverdueLoanHandler.
+ * Reserva, leitura, handlers e fechamento rodam numa só transação: uma falha ou queda desfaz a reserva
+ * e a data é tentada de novo, sem perder o dia.
+ */
+@Slf4j
+@Component
+public class OverdueLoanTracker {
+
+    static final String EVENTS = "events";
+    static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+    private static final int FETCH_SIZE = 1000;
+    private static final String RETAKE_RUN =
+            "update late_loan_notification_run set notified_customers = 0 where run_date = ? and finished = false";
+    private static final String CLAIM_RUN =
+            "insert into late_loan_notification_run (run_date, notified_customers, finished) values (?, 0, false)";
+    private static final String FINISH_RUN =
+            "update late_loan_notification_run set notified_customers = ?, finished = true where run_date = ?";
+
+    private final TreeMap<LocalDate, Set<Long>> loansByDueDate = new TreeMap<>();
+    private final Map<Long, LocalDate> dueDateByLoan = new HashMap<>();
+    //Vencimentos que falharam ou ficaram sem terminar, tentados de novo em retryAt
+    private final Set<LocalDate> retryDates = new TreeSet<>();
+
+    private final LoanRepository repository;
+    private final LateLoanNotificationRunRepository runRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler scheduler;
+    private final List<OverdueLoanHandler> handlers;
+    private final boolean enabled;
+    private final Counter overdueLoans;
+
+    //Disparo agendado para o vencimento mais próximo; protegidos pelo lock da instância
+    private ScheduledFuture<?> wakeup;
+    private Instant wakeupAt;
+    private Instant retryAt;
+
+    public OverdueLoanTracker(LoanRepository repository,
+                              LateLoanNotificationRunRepository runRepository,
+                              JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              TaskScheduler scheduler,
+                              List<OverdueLoanHandler> handlers,
+                              MeterRegistry registry,
+                              @Value("${application.loans.overdue-detection:events}") String detection) {
+        this.repository = repository;
+        this.runRepository = runRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.scheduler = scheduler;
+        this.handlers = handlers;
+        this.enabled = EVENTS.equals(detection);
+        Gauge.builder("library.loans.overdue.tracked", this, OverdueLoanTracker::size)
+                .description("Emprestimos ativos na fila de vencimentos")
+                .register(registry);
+        this.overdueLoans = registry.counter("library.loans.overdue");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if(!enabled){
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        //Continua do último dia notificado: o que venceu com a aplicação parada dispara logo na subida
+        LocalDate lastNotified = runRepository.findFirstByFinishedTrueOrderByRunDateDesc()
+                .map(LateLoanNotificationRun::getRunDate)
+                .orElse(today.minusDays(1));
+        List<LateLoanNotificationRun> unfinished = runRepository.findByFinishedFalse();
+        synchronized (this) {
+            loansByDueDate.clear();
+            dueDateByLoan.clear();
+            //Reservas que ficaram sem terminar são refeitas logo na subida
+            unfinished.forEach(run -> retryDates.add(run.getRunDate()));
+            retryAt = retryDates.isEmpty() ? null : Instant.now();
+        }
+        reload(lastNotified.minusDays(LoanServiceImpl.LOAN_DAYS));
+        log.info("Overdue loan tracker loaded with {} loans", size());
+        scheduleNext();
+    }
+
+    public void register(Loan loan) {
+        if(!enabled || loan.getId() == null){
+            return;
+        }
+        if(Boolean.TRUE.equals(loan.getReturned())){
+            removeAll(Collections.singletonList(loan.getId()));
+        } else if(loan.getLoanDate() != null){
+            registerAll(Collections.singletonList(loan.getId()), loan.getLoanDate());
+        }
+    }
+
+    public void registerAll(Collection<Long> loanIds, LocalDate loanDate) {
+        if(!enabled || loanIds.isEmpty()){
+            return;
+        }
+        synchronized (this) {
+            loanIds.forEach(loanId -> add(loanId, loanDate));
+        }
+        scheduleNext();
+    }
+
+    public synchronized void removeAll(Collection<Long> loanIds) {
+        loanIds.forEach(this::remove);
+    }
+
+    public synchronized int size() {
+        return dueDateByLoan.size();
+    }
+
+    /**
+     * Notifica os vencimentos até a data, e os que falharam antes, e agenda o próximo disparo.
+     */
+    public void fireDue(LocalDate today) {
+        try {
+            takeDue(today).forEach(this::notifyOverdue);
+            //Vencimentos futuros da base: emprestimos criados em outros nós também acordam este
+            try {
+                reload(today.minusDays(LoanServiceImpl.LOAN_DAYS));
+            } catch (RuntimeException e) {
+                log.warn("Could not reload the overdue loan queue", e);
+            }
+        } finally {
+            scheduleNext();
+        }
+    }
+
+    private synchronized Set<LocalDate> takeDue(LocalDate today) {
+        wakeupAt = null;
+        retryAt = null;
+        Set<LocalDate> due = new TreeSet<>(retryDates);
+        retryDates.clear();
+        while (!loansByDueDate.isEmpty() && !loansByDueDate.firstKey().isAfter(today)) {
+            Map.Entry<LocalDate, Set<Long>> entry = loansByDueDate.pollFirstEntry();
+            entry.getValue().forEach(dueDateByLoan::remove);
+            due.add(entry.getKey());
+        }
+        return due;
+    }
+
+    private void notifyOverdue(LocalDate dueDate) {
+        List<Loan> overdue;
+        try {
+            overdue = transactionTemplate.execute(status -> {
+                if(!claim(dueDate)){
+                    status.setRollbackOnly();
+                    return null;
+                }
+                List<Loan> loans = findOverdue(dueDate);
+                if(!loans.isEmpty()){
+                    handlers.forEach(handler -> handler.onOverdue(loans));
+                }
+                long customers = loans.stream().map(Loan::getCustomerEmail).distinct().count();
+                jdbcTemplate.update(FINISH_RUN, customers, Date.valueOf(dueDate));
+                return loans;
+            });
+        } catch (RuntimeException e) {
+            //A transação desfez a reserva: o vencimento volta para a fila e é tentado de novo
+            log.error("Overdue loans of {} failed, retrying in {}", dueDate, RETRY_DELAY, e);
+            synchronized (this) {
+                retryDates.add(dueDate);
+                retryAt = Instant.now().plus(RETRY_DELAY);
+            }
+            return;
+        }
+        if(overdue == null){
+            log.info("Overdue loans of {} already notified by another run", dueDate);
+            return;
+        }
+        overdueLoans.increment(overdue.size());
+        log.info("Overdue loans of {}: {} loans notified", dueDate, overdue.size());
+    }
+
+    private boolean claim(LocalDate dueDate) {
+        //Registro de uma execução que não terminou (anterior a esta transação única ou do modo scan): retoma
+        if(jdbcTemplate.update(RETAKE_RUN, Date.valueOf(dueDate)) == 1){
+            return true;
+        }
+        try {
+            jdbcTemplate.update(CLAIM_RUN, Date.valueOf(dueDate));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private List<Loan> findOverdue(LocalDate dueDate) {
+        LocalDate loanDate = dueDate.minusDays(LoanServiceImpl.LOAN_DAYS);
+        List<Loan> overdue = new ArrayList<>();
+        List<Loan> chunk;
+        Long after = 0L;
+        do {
+            chunk = repository.findActiveByLoanDateAfter(loanDate, after, PageRequest.of(0, FETCH_SIZE));
+            overdue.addAll(chunk);
+            if(!chunk.isEmpty()){
+                after = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == FETCH_SIZE);
+        return overdue;
+    }
+
+    private synchronized void scheduleNext() {
+        Instant next = loansByDueDate.isEmpty() ? null : startOf(loansByDueDate.firstKey());
+        if(retryAt != null && (next == null || retryAt.isBefore(next))){
+            next = retryAt;
+        }
+        if(next == null || next.equals(wakeupAt)){
+            return;
+        }
+        if(wakeup != null){
+            wakeup.cancel(false);
+        }
+        wakeupAt = next;
+        LocalDate day = next.atZone(ZoneId.systemDefault()).toLocalDate();
+        //Data do disparo junto com o relógio: um disparo adiantado por milissegundos ainda conta como o dia agendado
+        wakeup = scheduler.schedule(() -> fireDue(latest(day, LocalDate.now())), next);
+    }
+
+    //Emprestimos devolvidos entre a consulta e a carga podem voltar à fila: só causam um disparo sem notificações
+    private void reload(LocalDate after) {
+        List<LoanRepository.LoanDue> active = repository.findActiveLoanDatesAfter(after);
+        synchronized (this) {
+            active.forEach(due -> add(due.getLoanId(), due.getLoanDate()));
+        }
+    }
+
+    private void add(Long loanId, LocalDate loanDate) {
+        remove(loanId);
+        LocalDate dueDate = loanDate.plusDays(LoanServiceImpl.LOAN_DAYS);
+        loansByDueDate.computeIfAbsent(dueDate, date -> new HashSet<>()).add(loanId);
+        dueDateByLoan.put(loanId, dueDate);
+    }
+
+    private void remove(Long loanId) {
+        LocalDate dueDate = dueDateByLoan.remove(loanId);
+        if(dueDate == null){
+            return;
+        }
+        Set<Long> loans = loansByDueDate.get(dueDate);
+        loans.remove(loanId);
+        if(loans.isEmpty()){
+            loansByDueDate.remove(dueDate);
+        }
+    }
+
+    private static Instant startOf(LocalDate date) {
+        return date.atStartOfDay(ZoneId.systemDefault()).toInstant();
+    }
+
+    private static LocalDate latest(LocalDate first, LocalDate second) {
+        return first.isAfter(second) ? first : second;
+    }
+}
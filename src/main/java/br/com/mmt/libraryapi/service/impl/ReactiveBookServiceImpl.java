@@ -0,0 +1,92 @@
+package br.com.mmt.libraryapi.service.impl;
+
+import br.com.mmt.libraryapi.config.metrics.MetricsConfig;
+import br.com.mmt.libraryapi.exceptions.BusinessException;
+import br.com.mmt.libraryapi.model.reactive.BookRow;
+import br.com.mmt.libraryapi.model.reactive.BookRowRepository;
+import br.com.mmt.libraryapi.service.ReactiveBookService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+@Service
+@Profile("reactive")
+public class ReactiveBookServiceImpl implements ReactiveBookService {
+
+    private BookRowRepository repository;
+
+    private Counter isbnAlreadyRegistered;
+
+    public ReactiveBookServiceImpl(BookRowRepository repository, MeterRegistry registry) {
+        this.repository = repository;
+        this.isbnAlreadyRegistered = registry.counter(MetricsConfig.BUSINESS_REJECTIONS, "reason", "isbn_already_registered");
+    }
+
+    @Override
+    public Mono<BookRow> save(BookRow book) {
+        return repository.existsByIsbn(book.getIsbn())
+                .flatMap(exists -> exists ? Mono.error(isbnAlreadyRegistered()) : repository.save(book)
+                        //Violação do índice único de isbn: outro livro com o mesmo isbn foi gravado depois da consulta
+                        .onErrorMap(DataIntegrityViolationException.class, e -> isbnAlreadyRegistered()));
+    }
+
+    private BusinessException isbnAlreadyRegistered() {
+        isbnAlreadyRegistered.increment();
+        return new BusinessException("Isbn já cadastrado.");
+    }
+
+    @Override
+    public Mono<BookRow> getById(Long id) {
+        return repository.findById(id);
+    }
+
+    @Override
+    public Flux<BookRow> getByIds(Collection<Long> ids) {
+        return ids.isEmpty() ? Flux.empty() : repository.findAllById(ids);
+    }
+
+    @Override
+    public Mono<Void> delete(BookRow book) {
+        if(book.getId() == null){
+            return Mono.error(new IllegalArgumentException("Book id cant be null."));
+        }
+        return repository.delete(book);
+    }
+
+    @Override
+    public Mono<BookRow> update(BookRow book) {
+        if(book.getId() == null){
+            return Mono.error(new IllegalArgumentException("Book id cant be null."));
+        }
+        return repository.save(book);
+    }
+
+    @Override
+    public Mono<Page<BookRow>> find(BookRow filter, Pageable pageRequest) {
+        Example<BookRow> example = Example.of(filter,
+                ExampleMatcher
+                        .matching()
+                        .withIgnoreCase()
+                        .withIgnoreNullValues()
+                        .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)
+        );
+        return Mono.zip(repository.findAll(example, pageRequest).collectList(), repository.count(example))
+                .map(result -> new PageImpl<>(result.getT1(), pageRequest, result.getT2()));
+    }
+
+    @Override
+    public Mono<BookRow> getBookByIsbn(String isbn) {
+        return repository.findByIsbn(isbn);
+    }
+}
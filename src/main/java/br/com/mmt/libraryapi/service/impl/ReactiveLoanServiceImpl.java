@@ -0,0 +1,120 @@
+package br.com.mmt.libraryapi.service.impl;
+
+import br.com.mmt.libraryapi.api.dto.LoanFilterDTO;
+import br.com.mmt.libraryapi.config.metrics.MetricsConfig;
+import br.com.mmt.libraryapi.exceptions.BusinessException;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.model.reactive.LoanRow;
+import br.com.mmt.libraryapi.model.reactive.LoanRowRepository;
+import br.com.mmt.libraryapi.service.LoanStatisticsService;
+import br.com.mmt.libraryapi.service.ReactiveLoanService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Slf4j
+@Service
+@Profile("reactive")
+public class ReactiveLoanServiceImpl implements ReactiveLoanService {
+
+    private LoanRowRepository repository;
+
+    private LoanStatisticsService statistics;
+
+    private Counter alreadyLoaned;
+
+    public ReactiveLoanServiceImpl(LoanRowRepository repository, LoanStatisticsService statistics, MeterRegistry registry) {
+        this.repository = repository;
+        this.statistics = statistics;
+        this.alreadyLoaned = registry.counter(MetricsConfig.BUSINESS_REJECTIONS, "reason", "book_already_loaned");
+    }
+
+    @Override
+    public Mono<LoanRow> save(LoanRow loan) {
+        return repository.existsByActiveBookId(loan.getBookId())
+                .flatMap(loaned -> loaned ? Mono.error(alreadyLoaned()) : saveActiveLoan(loan))
+                .flatMap(saved -> updateStatistics(saved, statistics::loansCreated));
+    }
+
+    @Override
+    public Mono<LoanRow> getById(Long id) {
+        return repository.findById(id);
+    }
+
+    @Override
+    public Mono<LoanRow> update(LoanRow loan) {
+        //active_book_id ainda tem o estado lido da base: só é recalculado ao gravar
+        boolean wasActive = loan.getActiveBookId() != null;
+        return saveActiveLoan(loan).flatMap(updated -> {
+            boolean active = !Boolean.TRUE.equals(updated.getReturned());
+            if(wasActive && !active){
+                return updateStatistics(updated, statistics::loansReturned);
+            } else if(!wasActive && active){
+                return updateStatistics(updated, statistics::loansReopened);
+            }
+            return Mono.just(updated);
+        });
+    }
+
+    private Mono<LoanRow> saveActiveLoan(LoanRow loan) {
+        loan.updateActiveBookId();
+        //Violação da constraint unique de active_book_id: outro emprestimo ativo foi gravado antes
+        return repository.save(loan)
+                .onErrorMap(DataIntegrityViolationException.class, e -> alreadyLoaned());
+    }
+
+    /**
+     * As tabelas de resumo são gravadas por JDBC, fora do event loop. Sem transação reativa o resumo não é atômico
+     * com o save: se falhar, o emprestimo continua gravado e a reconciliação diária corrige os contadores.
+     */
+    private Mono<LoanRow> updateStatistics(LoanRow loan, Consumer<List<Loan>> update) {
+        Loan entity = Loan.builder()
+                .id(loan.getId())
+                .book(Book.builder().id(loan.getBookId()).build())
+                .customer(loan.getCustomer())
+                .customerEmail(loan.getCustomerEmail())
+                .loanDate(loan.getLoanDate())
+                .returned(loan.getReturned())
+                .build();
+        return Mono.fromRunnable(() -> update.accept(Collections.singletonList(entity)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    log.warn("Loan statistics not updated for loan {}", loan.getId(), e);
+                    return Mono.empty();
+                })
+                .thenReturn(loan);
+    }
+
+    private BusinessException alreadyLoaned() {
+        alreadyLoaned.increment();
+        return new BusinessException("Book already loaned.");
+    }
+
+    @Override
+    public Mono<Page<LoanRow>> find(LoanFilterDTO filter, Pageable pageable) {
+        return Mono.zip(
+                repository.findByBookIsbnOrCustomer(filter.getIsbn(), filter.getCustomer(),
+                        pageable.getPageSize(), pageable.getOffset()).collectList(),
+                repository.countByBookIsbnOrCustomer(filter.getIsbn(), filter.getCustomer())
+        ).map(result -> new PageImpl<>(result.getT1(), pageable, result.getT2()));
+    }
+
+    @Override
+    public Mono<Page<LoanRow>> getLoansByBook(Long bookId, Pageable pageable) {
+        return Mono.zip(repository.findByBookId(bookId, pageable).collectList(), repository.countByBookId(bookId))
+                .map(result -> new PageImpl<>(result.getT1(), pageable, result.getT2()));
+    }
+}
@@ -1,34 +1,176 @@
 package br.com.mmt.libraryapi.service.impl;
 
+import br.com.mmt.libraryapi.model.entity.LateLoanNotificationRun;
 import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.model.repository.LateLoanNotificationRunRepository;
 import br.com.mmt.libraryapi.service.EmailService;
 import br.com.mmt.libraryapi.service.LoanService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Notificação de emprestimos atrasados: lê os atrasados em blocos ordenados por (customerEmail, id),
+ * agrupa por customer e enfileira as mensagens do bloco, uma por customer, na outbox de emails numa única chamada.
+ * Ao fim de cada bloco o último customer notificado é gravado, permitindo retomar uma execução interrompida.
+ * Só roda com application.loans.overdue-detection=scan; no modo padrão (events) o OverdueLoanTracker notifica.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class ScheduleService {
 
     private static final String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
+    private static final String SCAN = "scan";
 
     private final LoanService loanService;
     private final EmailService emailService;
-    @Value("${application.mail.lateloans.message}")
-    private String mensagem;
+    private final LateLoanNotificationRunRepository runRepository;
+    private final String mensagem;
+    private final int chunkSize;
+    private final boolean enabled;
+    private final AtomicBoolean running = new AtomicBoolean();
+    //Emprestimos atrasados ainda não notificados na execução corrente e duração da última execução
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong lastRunMillis = new AtomicLong();
+    private final Timer runTimer;
+    private final Counter notifiedCustomers;
+
+    public ScheduleService(LoanService loanService,
+                           EmailService emailService,
+                           LateLoanNotificationRunRepository runRepository,
+                           MeterRegistry registry,
+                           @Value("${application.mail.lateloans.message}") String mensagem,
+                           @Value("${application.mail.lateloans.chunk-size:1000}") int chunkSize,
+                           @Value("${application.loans.overdue-detection:events}") String overdueDetection) {
+        this.loanService = loanService;
+        this.emailService = emailService;
+        this.runRepository = runRepository;
+        this.mensagem = mensagem;
+        this.chunkSize = chunkSize;
+        this.enabled = SCAN.equals(overdueDetection);
+
+        Gauge.builder("library.lateloans.backlog", backlog, AtomicLong::get)
+                .description("Emprestimos atrasados ainda não notificados na execução corrente")
+                .register(registry);
+        TimeGauge.builder("library.lateloans.run.duration", lastRunMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Duração da última execução da notificação de atrasados")
+                .register(registry);
+        this.runTimer = Timer.builder("library.lateloans.run")
+                .description("Execuções da notificação de atrasados")
+                .register(registry);
+        this.notifiedCustomers = registry.counter("library.lateloans.notified");
+    }
 
     @Scheduled(cron = CRON_LATE_LOANS)
     public void sendEmailToLateLoans(){
-        List<Loan> allLateLoans = loanService.getAllLateLoans();
-        List<String> mailList = allLateLoans.stream().map(
-                loan -> loan.getCustomerEmail()
-        ).collect(Collectors.toList());
-        emailService.sendMails(mensagem, mailList);
+        if(!enabled){
+            return;
+        }
+        resumeUnfinishedRun();
+        LocalDate today = LocalDate.now();
+        LateLoanNotificationRun run = runRepository.findById(today)
+                .orElseGet(() -> LateLoanNotificationRun.builder().runDate(today).build());
+        if(!run.isFinished()){
+            notifyLateLoans(run);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedRun(){
+        if(!enabled){
+            return;
+        }
+        runRepository.findFirstByFinishedFalseOrderByRunDateDesc().ifPresent(this::notifyLateLoans);
+    }
+
+    private void notifyLateLoans(LateLoanNotificationRun run){
+        if(!running.compareAndSet(false, true)){
+            log.warn("Late loans notification already running, skipping run of {}", run.getRunDate());
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            backlog.set(loanService.countLateLoans(run.getRunDate()));
+            //Retomando: começa no customer seguinte ao último já notificado
+            String afterEmail = run.getLastCustomerEmail();
+            Long afterId = afterEmail == null ? 0L : Long.MAX_VALUE;
+            String currentEmail = null;
+            List<Loan> currentLoans = new ArrayList<>();
+            List<Loan> chunk;
+            do {
+                chunk = loanService.getLateLoansAfter(run.getRunDate(), afterEmail, afterId, chunkSize);
+                Map<String, String> messages = new LinkedHashMap<>();
+                for (Loan loan : chunk) {
+                    if(!loan.getCustomerEmail().equals(currentEmail)){
+                        if(currentEmail != null){
+                            messages.put(currentEmail, message(mensagem, currentLoans));
+                        }
+                        currentEmail = loan.getCustomerEmail();
+                        currentLoans = new ArrayList<>();
+                    }
+                    currentLoans.add(loan);
+                }
+                //Os emprestimos do último customer do bloco podem continuar no próximo bloco
+                if(chunk.size() < chunkSize && currentEmail != null){
+                    messages.put(currentEmail, message(mensagem, currentLoans));
+                    currentEmail = null;
+                }
+                if(!messages.isEmpty()){
+                    //A outbox só grava as mensagens; o envio SMTP fica com o EmailDispatcher
+                    emailService.sendMails(messages);
+                    String lastNotified = null;
+                    for (String email : messages.keySet()) {
+                        lastNotified = email;
+                    }
+                    run.setLastCustomerEmail(lastNotified);
+                    run.setNotifiedCustomers(run.getNotifiedCustomers() + messages.size());
+                    notifiedCustomers.increment(messages.size());
+                    runRepository.save(run);
+                }
+                backlog.set(Math.max(0, backlog.get() - chunk.size()));
+                if(!chunk.isEmpty()){
+                    Loan last = chunk.get(chunk.size() - 1);
+                    afterEmail = last.getCustomerEmail();
+                    afterId = last.getId();
+                }
+            } while (chunk.size() == chunkSize);
+
+            run.setFinished(true);
+            runRepository.save(run);
+            log.info("Late loans notification of {} finished: {} customers notified", run.getRunDate(), run.getNotifiedCustomers());
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            lastRunMillis.set(TimeUnit.NANOSECONDS.toMillis(elapsed));
+            runTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            running.set(false);
+        }
+    }
+
+    static String message(String mensagem, List<Loan> loans){
+        StringBuilder text = new StringBuilder(mensagem).append("\n\nLivros:");
+        for (Loan loan : loans) {
+            text.append("\n- ").append(loan.getBook().getTitle())
+                    .append(" (emprestado em ").append(loan.getLoanDate()).append(")");
+        }
+        return text.toString();
     }
 
 }
@@ -0,0 +1,46 @@
+package br.com.mmt.libraryapi.config.threads;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Ativo junto com as virtual threads: envolve o HikariDataSource num ConnectionLimitingDataSource
+ * com o mesmo número de permissões que o maximumPoolSize do pool.
+ * Fica em src/main/java21 com o VirtualThreadsConfig: sem o perfil java21 a propriedade não liga nada.
+ */
+@Configuration
+@ConditionalOnProperty(name = "application.threads.virtual", havingValue = "true")
+public class ConnectionLimiterConfig {
+
+    //Mesmo padrão do Hikari quando maximumPoolSize não é configurado (o valor só é resolvido ao abrir o pool)
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public static BeanPostProcessor connectionLimiterPostProcessor(Environment environment,
+                                                                   ObjectProvider<MeterRegistry> registry) {
+        long acquireTimeoutMs = environment.getProperty("application.threads.connection-acquire-timeout-ms", Long.class, 30000L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if(!(bean instanceof HikariDataSource)){
+                    return bean;
+                }
+                HikariDataSource hikari = (HikariDataSource) bean;
+                int poolSize = hikari.getMaximumPoolSize() > 0 ? hikari.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+                ConnectionLimitingDataSource limited = new ConnectionLimitingDataSource(hikari, poolSize, acquireTimeoutMs);
+                registry.ifAvailable(meters -> Gauge.builder("library.datasource.limiter.waiting", limited,
+                                ConnectionLimitingDataSource::waitingThreads)
+                        .description("Threads esperando uma conexão no limitador")
+                        .register(meters));
+                return limited;
+            }
+        };
+    }
+}
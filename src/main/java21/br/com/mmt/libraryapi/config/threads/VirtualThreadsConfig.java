@@ -0,0 +1,49 @@
+package br.com.mmt.libraryapi.config.threads;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual threads (Java 21, perfil java21) ligadas por application.threads.virtual=true:
+ * requisições do Tomcat, jobs @Scheduled (incluindo o EmailDispatcher) e o applicationTaskExecutor
+ * passam a rodar em virtual threads.
+ * O acesso ao banco continua limitado ao tamanho do pool pelo ConnectionLimiterConfig.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "application.threads.virtual", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        log.info("Tomcat requests running on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("http-virtual-", 0).factory()));
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("task-virtual-", 0).factory()));
+    }
+
+    @Bean
+    public TaskScheduler taskScheduler() {
+        //Pool fixo de 4 threads do ScheduledThreadPoolExecutor, criadas como virtual threads: não é uma virtual thread
+        //por disparo, no máximo 4 jobs rodam ao mesmo tempo e um job longo ocupa uma delas até terminar
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(4);
+        scheduler.setThreadFactory(Thread.ofVirtual().name("scheduling-virtual-", 0).factory());
+        return scheduler;
+    }
+}
@@ -0,0 +1,55 @@
+-- Schema inicial. Os índices seguem as consultas dos repositórios:
+-- isbn (existsByIsbn/findByIsbn), livro + devolvido (existsByBookAndNotReturned/findByBook),
+-- customer (busca de emprestimos por customer) e data do emprestimo + devolvido (emprestimos atrasados).
+-- version começa em 0 também nos inserts por JDBC que não informam a coluna: o @Version não trata versão nula.
+
+create table book (
+    id bigint generated by default as identity primary key,
+    title varchar(255),
+    author varchar(255),
+    isbn varchar(255),
+    version bigint not null default 0
+);
+
+create unique index ux_book_isbn on book (isbn);
+
+create table loan (
+    id bigint generated by default as identity primary key,
+    book_id bigint,
+    customer varchar(255),
+    customer_email varchar(255),
+    loan_date date,
+    returned boolean,
+    active_book_id bigint,
+    version bigint not null default 0
+);
+
+-- Um único emprestimo ativo por livro: active_book_id só é preenchido enquanto o emprestimo não foi devolvido
+create unique index ux_loan_active_book on loan (active_book_id);
+create index idx_loan_book_returned on loan (book_id, returned);
+create index idx_loan_customer on loan (customer);
+create index idx_loan_overdue on loan (loan_date, returned);
+-- Depois do índice (book_id, returned), que passa a atender também a foreign key
+alter table loan add constraint fk_loan_book foreign key (book_id) references book (id);
+
+create table email_outbox (
+    id bigint generated by default as identity primary key,
+    recipient varchar(255) not null,
+    subject varchar(255),
+    body clob,
+    status varchar(10) not null,
+    attempts integer not null,
+    next_attempt_at timestamp not null,
+    last_error varchar(1000),
+    created_at timestamp,
+    sent_at timestamp
+);
+
+create index idx_email_outbox_status_next_attempt on email_outbox (status, next_attempt_at);
+
+create table late_loan_notification_run (
+    run_date date primary key,
+    last_customer_email varchar(255),
+    notified_customers bigint not null,
+    finished boolean not null
+);
@@ -0,0 +1,22 @@
+-- Estatísticas de emprestimos mantidas incrementalmente pelo LoanStatisticsServiceImpl e reconciliadas todo dia.
+-- Uma linha por chave, para que a leitura não dependa do tamanho do histórico.
+
+create table loan_stats_book (
+    book_id bigint primary key,
+    total_loans bigint not null,
+    active_loans bigint not null
+);
+
+-- Só customers com emprestimo ativo em algum momento; atrasado = ativo com loan_date até hoje - dias de emprestimo
+create table loan_stats_customer (
+    customer varchar(255) primary key,
+    active_loans bigint not null,
+    overdue_loans bigint not null
+);
+
+-- Emprestimos pela loan_date; devoluções pelo dia em que foram registradas
+create table loan_stats_daily (
+    stat_date date primary key,
+    loans bigint not null,
+    returns bigint not null
+);
@@ -0,0 +1,5 @@
+-- Reserva das mensagens pelo EmailDispatcher: o nó que reservou o lote grava aqui o seu token
+-- e empurra next_attempt_at para o fim da reserva, então os outros nós não enviam as mesmas mensagens.
+alter table email_outbox add column claimed_by varchar(36);
+
+create index idx_email_outbox_claimed_by on email_outbox (claimed_by);
@@ -0,0 +1,59 @@
+package br.com.mmt.libraryapi.api.cache;
+
+import br.com.mmt.libraryapi.api.dto.BookDTO;
+import br.com.mmt.libraryapi.api.mapper.BookMapper;
+import br.com.mmt.libraryapi.model.entity.Book;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookJsonCacheTest {
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Deve reaproveitar os bytes enquanto a versão do livro não muda")
+    public void versionTest() throws Exception {
+        //Cenário
+        BookJsonCache cache = new BookJsonCache(new BookMapper(), objectMapper, new SimpleMeterRegistry(), 1 << 20, false, 1024);
+
+        //Execução
+        BookJsonCache.Json first = cache.get(book("Api Restfull", 1L));
+        BookJsonCache.Json sameVersion = cache.get(book("Outro", 1L));
+        BookJsonCache.Json newVersion = cache.get(book("Outro", 2L));
+        cache.evict(1L);
+        BookJsonCache.Json afterEvict = cache.get(book("Api Restfull", 2L));
+
+        //Validação
+        assertThat(sameVersion).isSameAs(first);
+        assertThat(objectMapper.readValue(first.getJson(), BookDTO.class).getTitle()).isEqualTo("Api Restfull");
+        assertThat(objectMapper.readValue(newVersion.getJson(), BookDTO.class).getTitle()).isEqualTo("Outro");
+        assertThat(objectMapper.readValue(afterEvict.getJson(), BookDTO.class).getTitle()).isEqualTo("Api Restfull");
+        assertThat(first.getGzip()).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve guardar o JSON em gzip a partir do tamanho mínimo")
+    public void gzipTest() throws Exception {
+        //Cenário
+        BookJsonCache cache = new BookJsonCache(new BookMapper(), objectMapper, new SimpleMeterRegistry(), 1 << 20, true, 10);
+
+        //Execução
+        BookJsonCache.Json json = cache.get(book("Api Restfull", 1L));
+
+        //Validação
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(json.getGzip()))) {
+            assertThat(gzip.readAllBytes()).isEqualTo(json.getJson());
+        }
+    }
+
+    private static Book book(String title, Long version){
+        return Book.builder().id(1L).title(title).author("Moises").isbn("123").version(version).build();
+    }
+}
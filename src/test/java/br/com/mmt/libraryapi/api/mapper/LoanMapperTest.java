@@ -0,0 +1,55 @@
+package br.com.mmt.libraryapi.api.mapper;
+
+import br.com.mmt.libraryapi.api.dto.BookDTO;
+import br.com.mmt.libraryapi.api.dto.LoanDTO;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoanMapperTest {
+
+    LoanMapper mapper = new LoanMapper(new BookMapper());
+
+    @Test
+    @DisplayName("Deve converter um emprestimo com o livro para DTO")
+    public void loanToDTOTest(){
+        //Cenário
+        Book book = Book.builder().id(2L).title("Api Restfull").author("Moises").isbn("123").build();
+        Loan loan = Loan.builder()
+                .id(1L)
+                .book(book)
+                .customer("Cicrano")
+                .customerEmail("cicrano@ig.com")
+                .loanDate(LocalDate.now())
+                .build();
+        //Execução
+        LoanDTO dto = mapper.toDTO(loan);
+        //Validação
+        assertThat(dto.getId()).isEqualTo(1L);
+        assertThat(dto.getIsbn()).isEqualTo("123");
+        assertThat(dto.getCustomer()).isEqualTo("Cicrano");
+        assertThat(dto.getCustomerEmail()).isEqualTo("cicrano@ig.com");
+        assertThat(dto.getBook().getId()).isEqualTo(2L);
+        assertThat(dto.getBook().getTitle()).isEqualTo("Api Restfull");
+        assertThat(dto.getBook().getAuthor()).isEqualTo("Moises");
+    }
+
+    @Test
+    @DisplayName("Deve converter um DTO de livro para a entidade")
+    public void bookDTOToEntityTest(){
+        //Cenário
+        BookDTO dto = BookDTO.builder().title("Api Restfull").author("Moises").isbn("123").build();
+        //Execução
+        Book book = new BookMapper().toEntity(dto);
+        //Validação
+        assertThat(book.getId()).isNull();
+        assertThat(book.getTitle()).isEqualTo("Api Restfull");
+        assertThat(book.getAuthor()).isEqualTo("Moises");
+        assertThat(book.getIsbn()).isEqualTo("123");
+    }
+}
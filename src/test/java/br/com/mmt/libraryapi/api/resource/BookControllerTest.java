@@ -1,12 +1,19 @@
 package br.com.mmt.libraryapi.api.resource;
 
+import br.com.mmt.libraryapi.api.cache.BookJsonCache;
 import br.com.mmt.libraryapi.api.dto.BookDTO;
+import br.com.mmt.libraryapi.api.dto.BookImportErrorDTO;
+import br.com.mmt.libraryapi.api.dto.BookImportResultDTO;
+import br.com.mmt.libraryapi.api.pagination.CursorPagination;
 import br.com.mmt.libraryapi.exceptions.BusinessException;
 import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.service.BookImportService;
 import br.com.mmt.libraryapi.service.BookService;
+import br.com.mmt.libraryapi.service.ExportService;
 import br.com.mmt.libraryapi.service.LoanService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -17,26 +24,41 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
-@WebMvcTest(controllers = BookController.class)
+//gzip a partir de 0 bytes: todo livro tem as duas representações e o Accept-Encoding decide qual vai
+@WebMvcTest(controllers = BookController.class, properties = {
+        "application.books.json-cache.gzip=true",
+        "application.books.json-cache.gzip-min-bytes=0"
+})
+@Import({BookJsonCache.class, SimpleMeterRegistry.class})
 @AutoConfigureMockMvc
 public class BookControllerTest {
 
@@ -51,6 +73,12 @@ public class BookControllerTest {
     @MockBean
     LoanService loanService;
 
+    @MockBean
+    BookImportService importService;
+
+    @MockBean
+    ExportService exportService;
+
     @Test
     @DisplayName("Deve criar um livro com sucesso!")
     public void createBookTest() throws Exception {
@@ -152,6 +180,91 @@ public class BookControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve retornar 304 quando o ETag informado for o da versão atual do livro")
+    public void getBookNotModifiedTest() throws Exception {
+        //Cenario (given)
+        Book book = Book.builder().id(1L).title("Meu Livro").author("Autor").isbn("123").version(2L).build();
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(book));
+
+        //Execução
+        MockHttpServletRequestBuilder current = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/1"))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"2\"")
+                .accept(MediaType.APPLICATION_JSON);
+        MockHttpServletRequestBuilder stale = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/1"))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1\"")
+                .accept(MediaType.APPLICATION_JSON);
+
+        //Validações
+        mockMvc.perform(current)
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(content().string(""));
+        mockMvc.perform(stale)
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(jsonPath("title").value("Meu Livro"));
+    }
+
+    @Test
+    @DisplayName("Deve enviar o livro em gzip, com ETag próprio, só quando o Accept-Encoding aceitar gzip")
+    public void getBookGzipTest() throws Exception {
+        //Cenario (given)
+        Book book = Book.builder().id(1L).title("Meu Livro").author("Autor").isbn("123").version(2L).build();
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(book));
+
+        //Execução e Validações
+        for (String acceptEncoding : new String[]{"gzip, deflate", "deflate, *;q=0.5", "GZIP;q=0.8"}) {
+            mockMvc.perform(get(acceptEncoding, null))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"2-gzip\""))
+                    .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING));
+        }
+        for (String acceptEncoding : new String[]{"gzip;q=0", "identity", "deflate, *;q=0.5, gzip;q=0", "*;q=0"}) {
+            mockMvc.perform(get(acceptEncoding, null))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                    .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                    .andExpect(jsonPath("title").value("Meu Livro"));
+        }
+    }
+
+    @Test
+    @DisplayName("Deve retornar 304 só para o ETag do mesmo encoding")
+    public void getBookGzipNotModifiedTest() throws Exception {
+        //Cenario (given)
+        Book book = Book.builder().id(1L).title("Meu Livro").author("Autor").isbn("123").version(2L).build();
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(book));
+
+        //Execução e Validações
+        mockMvc.perform(get("gzip", "\"2-gzip\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2-gzip\""));
+        mockMvc.perform(get("gzip", "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+        mockMvc.perform(get(null, "\"2-gzip\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    private static MockHttpServletRequestBuilder get(String acceptEncoding, String ifNoneMatch) {
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/1"))
+                .accept(MediaType.APPLICATION_JSON);
+        if(acceptEncoding != null){
+            request.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        if(ifNoneMatch != null){
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return request;
+    }
+
     @Test
     @DisplayName("Deve retornar resource not found quando o livro procurado não existir")
     public void bookNotFoundTest() throws Exception {
@@ -214,7 +327,7 @@ public class BookControllerTest {
 
         Book updateBook = Book.builder().id(id).author("Moises").title("Meu Livro").isbn("123456").build();
 
-        BDDMockito.given(service.update(updatingBook)).willReturn(updateBook);
+        BDDMockito.given(service.update(Mockito.any(Book.class))).willReturn(updateBook);
 
         //Execução
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -228,9 +341,81 @@ public class BookControllerTest {
                 .andExpect(jsonPath("title").value(createNewBookMock().getTitle()))
                 .andExpect(jsonPath("author").value(createNewBookMock().getAuthor()))
                 .andExpect(jsonPath("isbn").value(createNewBookMock().getIsbn()));
+        //O livro devolvido pelo getById (o do cache) não é alterado
+        Mockito.verify(service).update(Book.builder().id(id).author("Moises").title("Meu Livro").build());
+        assertThat(updatingBook.getAuthor()).isEqualTo("some author");
+        assertThat(updatingBook.getTitle()).isEqualTo("some title");
 
     }
 
+    @Test
+    @DisplayName("Deve retornar 412 ao atualizar um livro com If-Match de uma versão antiga")
+    public void updateBookStaleIfMatchTest() throws Exception {
+
+        //Cenario (given)
+        String json = new ObjectMapper().writeValueAsString(createNewBookMock());
+        Book book = Book.builder().id(1L).author("some author").title("some title").version(3L).build();
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(book));
+
+        //Execução
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .put(BOOK_API.concat("/1"))
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .content(json)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON);
+        //Validações
+        mockMvc.perform(request)
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("errors[0]").value("Resource was modified."));
+        Mockito.verify(service, Mockito.never()).update(Mockito.any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Deve aceitar no If-Match o ETag da versão atual em gzip")
+    public void updateBookGzipIfMatchTest() throws Exception {
+
+        //Cenario (given)
+        String json = new ObjectMapper().writeValueAsString(createNewBookMock());
+        Book book = Book.builder().id(1L).author("some author").title("some title").version(3L).build();
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(book));
+        BDDMockito.given(service.update(Mockito.any(Book.class))).willReturn(book);
+
+        //Execução
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .put(BOOK_API.concat("/1"))
+                .header(HttpHeaders.IF_MATCH, "\"3-gzip\"")
+                .content(json)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON);
+        //Validações
+        mockMvc.perform(request).andExpect(status().isOk());
+        Mockito.verify(service).update(Mockito.any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Deve retornar 409 quando o livro for alterado por outra requisição durante a atualização")
+    public void updateBookConcurrentModificationTest() throws Exception {
+
+        //Cenario (given)
+        String json = new ObjectMapper().writeValueAsString(createNewBookMock());
+        Book book = Book.builder().id(1L).author("some author").title("some title").version(3L).build();
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(book));
+        BDDMockito.given(service.update(Mockito.any(Book.class))).willThrow(new ObjectOptimisticLockingFailureException(Book.class, 1L));
+
+        //Execução
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .put(BOOK_API.concat("/1"))
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .content(json)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON);
+        //Validações
+        mockMvc.perform(request)
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("errors[0]").value("Resource was modified concurrently."));
+    }
+
     @Test
     @DisplayName("Deve retornar 404 ao atualizar um livro inexistente.")
     public void updateInexistentBookTest() throws Exception {
@@ -283,6 +468,147 @@ public class BookControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve filtrar livros sem o total quando count=none")
+    public void findBooksWithoutCountTest() throws Exception {
+
+        //Cenario
+        Book book = Book.builder().id(1L).title("Meu Livro").author("Autor").isbn("123").build();
+        BDDMockito.given(service.findSlice(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(new SliceImpl<>(Arrays.asList(book), PageRequest.of(0, 1), true));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("?author=Autor&page=0&size=1&count=none"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(request).andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("last").value(false))
+                .andExpect(jsonPath("totalElements").doesNotExist());
+        Mockito.verify(service, Mockito.never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve retornar bad request para modo de contagem inválido")
+    public void findBooksInvalidCountTest() throws Exception {
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("?count=talvez"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(request).andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Invalid count mode."));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar livros por cursor sem contar o total")
+    public void findBooksAfterTest() throws Exception {
+
+        //Cenario
+        Book book = Book.builder()
+                .id(11L)
+                .title(createNewBookMock().getTitle())
+                .author(createNewBookMock().getAuthor())
+                .isbn(createNewBookMock().getIsbn())
+                .build();
+
+        BDDMockito.given(service.findAfter(Mockito.any(Book.class), Mockito.eq(10L), Mockito.eq(1)))
+                .willReturn(new SliceImpl<Book>(Arrays.asList(book), PageRequest.of(0, 1), true));
+
+        String queryString = String.format("?title=%s&after=%s&size=1",
+                book.getTitle(), CursorPagination.encode(10L));
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat(queryString))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(request).andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(11))
+                .andExpect(jsonPath("hasNext").value(true))
+                .andExpect(jsonPath("next").value(CursorPagination.encode(11L)))
+                .andExpect(jsonPath("totalElements").doesNotExist());
+
+        Mockito.verify(service, Mockito.never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve retornar bad request para um cursor inválido")
+    public void findBooksInvalidCursorTest() throws Exception {
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("?after=invalido"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(request).andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Invalid cursor."));
+    }
+
+    @Test
+    @DisplayName("Deve importar livros de um arquivo CSV")
+    public void importBooksTest() throws Exception {
+
+        //Cenario
+        BookImportResultDTO importResult = BookImportResultDTO.builder()
+                .processed(2).imported(1).failed(1)
+                .errors(Arrays.asList(new BookImportErrorDTO(3, "123", "Isbn já cadastrado.")))
+                .build();
+        BDDMockito.given(importService.importBooks(Mockito.any(), Mockito.eq(BookImportService.Format.CSV)))
+                .willReturn(importResult);
+
+        String csv = "title,author,isbn\nMeu Livro,Moises,123\nMeu Livro,Moises,123\n";
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(BOOK_API.concat("/import"))
+                .contentType("text/csv")
+                .accept(MediaType.APPLICATION_JSON)
+                .content(csv);
+
+        mockMvc.perform(request).andExpect(status().isOk())
+                .andExpect(jsonPath("imported").value(1))
+                .andExpect(jsonPath("failed").value(1))
+                .andExpect(jsonPath("errors[0].line").value(3))
+                .andExpect(jsonPath("errors[0].message").value("Isbn já cadastrado."));
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros pelo termo informado")
+    public void searchBooksTest() throws Exception {
+
+        //Cenario
+        Book book = Book.builder().id(1L).title("Memórias de José").author("Maria").isbn("123").build();
+        BDDMockito.given(service.search(Mockito.eq("jose"), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0, 10), 1));
+
+        //Execução
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("/search?q=jose&page=0&size=10"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        //Validações
+        mockMvc.perform(request).andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(1))
+                .andExpect(jsonPath("totalElements").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve exportar os livros em NDJSON")
+    public void exportBooksTest() throws Exception {
+
+        //Cenario
+        Mockito.doAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            consumer.accept(Book.builder().id(1L).author("Moises").title("Meu Livro").isbn("123456").build());
+            consumer.accept(Book.builder().id(2L).author("Maria").title("Outro Livro").isbn("654321").build());
+            return null;
+        }).when(exportService).exportBooks(Mockito.any());
+
+        //Execução
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //Validações
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                .andExpect(content().string(
+                        "{\"id\":1,\"title\":\"Meu Livro\",\"author\":\"Moises\",\"isbn\":\"123456\"}\n"
+                        + "{\"id\":2,\"title\":\"Outro Livro\",\"author\":\"Maria\",\"isbn\":\"654321\"}"));
+    }
+
     private BookDTO createNewBookMock() {
         return BookDTO.builder().author("Moises").title("Meu Livro").isbn("123456").build();
     }
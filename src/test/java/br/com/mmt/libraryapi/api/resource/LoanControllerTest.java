@@ -1,12 +1,20 @@
 package br.com.mmt.libraryapi.api.resource;
 
+import br.com.mmt.libraryapi.api.dto.LoanBatchItemDTO;
+import br.com.mmt.libraryapi.api.dto.LoanBatchResultDTO;
 import br.com.mmt.libraryapi.api.dto.LoanDTO;
 import br.com.mmt.libraryapi.api.dto.LoanFilterDTO;
+import br.com.mmt.libraryapi.api.dto.LoanReturnItemDTO;
+import br.com.mmt.libraryapi.api.dto.LoanReturnRequestDTO;
+import br.com.mmt.libraryapi.api.dto.LoanReturnResultDTO;
 import br.com.mmt.libraryapi.api.dto.ReturnedLoanDTO;
+import br.com.mmt.libraryapi.api.pagination.CursorPagination;
 import br.com.mmt.libraryapi.exceptions.BusinessException;
 import br.com.mmt.libraryapi.model.entity.Book;
 import br.com.mmt.libraryapi.model.entity.Loan;
 import br.com.mmt.libraryapi.service.BookService;
+import br.com.mmt.libraryapi.service.ExportService;
+import br.com.mmt.libraryapi.service.LoanBatchService;
 import br.com.mmt.libraryapi.service.LoanService;
 import br.com.mmt.libraryapi.service.LoanServiceTest;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -23,17 +31,22 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -54,6 +67,12 @@ public class LoanControllerTest {
     @MockBean
     private LoanService loanService;
 
+    @MockBean
+    private ExportService exportService;
+
+    @MockBean
+    private LoanBatchService loanBatchService;
+
     @Test
     @DisplayName("Deve realizar um emprestimo.")
     public void createLoanTest() throws Exception {
@@ -150,6 +169,46 @@ public class LoanControllerTest {
         Mockito.verify(loanService, Mockito.times(1)).update(loan);
     }
 
+    @Test
+    @DisplayName("Deve retornar 412 ao devolver um emprestimo com If-Match de uma versão antiga")
+    public void returnBookStaleIfMatchTest() throws Exception {
+
+        //Cenário
+        String json = new ObjectMapper().writeValueAsString(ReturnedLoanDTO.builder().returned(true).build());
+        Loan loan = Loan.builder().id(1L).version(1L).build();
+        BDDMockito.given(loanService.getById(1L)).willReturn(Optional.of(loan));
+
+        //Execução
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.patch(LOAN_API.concat("/1"))
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON).content(json);
+
+        //Validação
+        mvc.perform(request).andExpect(status().isPreconditionFailed());
+
+        Mockito.verify(loanService, Mockito.never()).update(loan);
+    }
+
+    @Test
+    @DisplayName("Deve obter um emprestimo com ETag e retornar 304 para a mesma versão")
+    public void getLoanTest() throws Exception {
+
+        //Cenário
+        Book book = Book.builder().id(1L).title("Teste de APIs").author("Moisés Moura").isbn("123").build();
+        Loan loan = Loan.builder().id(1L).book(book).customer("Fulano").loanDate(LocalDate.now()).version(4L).build();
+        BDDMockito.given(loanService.getById(1L)).willReturn(Optional.of(loan));
+
+        //Execução e Validação
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/1")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(jsonPath("isbn").value("123"))
+                .andExpect(jsonPath("customer").value("Fulano"));
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/1")).header(HttpHeaders.IF_NONE_MATCH, "\"4\""))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     @DisplayName("Deve retornar 404 quando tentar devolver um livro inexistente")
     public void returnInexistentBookLoanedTest() throws Exception {
@@ -169,6 +228,64 @@ public class LoanControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve devolver emprestimos em lote informando o resultado de cada item")
+    public void returnBooksTest() throws Exception {
+
+        //Cenário
+        LoanReturnRequestDTO dto = LoanReturnRequestDTO.builder().ids(Arrays.asList(1L, 2L)).build();
+        String json = new ObjectMapper().writeValueAsString(dto);
+        LoanReturnResultDTO result = LoanReturnResultDTO.builder()
+                .processed(2).returned(1).failed(1)
+                .items(Arrays.asList(
+                        LoanReturnItemDTO.builder().id(1L).loanId(1L).status(LoanReturnItemDTO.Status.RETURNED).build(),
+                        LoanReturnItemDTO.builder().id(2L).status(LoanReturnItemDTO.Status.NOT_FOUND).build()))
+                .build();
+        BDDMockito.given(loanBatchService.returnLoans(Mockito.any(LoanReturnRequestDTO.class))).willReturn(result);
+
+        //Execução
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(LOAN_API.concat("/returns"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON).content(json);
+
+        //Validação
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("returned").value(1))
+                .andExpect(jsonPath("items[0].status").value("RETURNED"))
+                .andExpect(jsonPath("items[1].status").value("NOT_FOUND"));
+    }
+
+    @Test
+    @DisplayName("Deve criar emprestimos em lote informando o resultado de cada item")
+    public void createBatchTest() throws Exception {
+
+        //Cenário
+        List<LoanDTO> dtos = Arrays.asList(
+                LoanDTO.builder().isbn("123").customer("Fulano").build(),
+                LoanDTO.builder().isbn("456").customer("Fulano").build());
+        String json = new ObjectMapper().writeValueAsString(dtos);
+        LoanBatchResultDTO result = LoanBatchResultDTO.builder()
+                .processed(2).created(1).failed(1)
+                .items(Arrays.asList(
+                        LoanBatchItemDTO.builder().index(0).isbn("123").id(1L).build(),
+                        LoanBatchItemDTO.builder().index(1).isbn("456").error("Book already loaned.").build()))
+                .build();
+        BDDMockito.given(loanBatchService.createLoans(Mockito.anyList())).willReturn(result);
+
+        //Execução
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(LOAN_API.concat("/batch"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON).content(json);
+
+        //Validação
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("created").value(1))
+                .andExpect(jsonPath("items[0].id").value(1))
+                .andExpect(jsonPath("items[1].error").value("Book already loaned."));
+    }
+
     @Test
     @DisplayName("Deve filtrar emprestimos")
     public void findLoanTest() throws Exception {
@@ -204,4 +321,60 @@ public class LoanControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve filtrar emprestimos por cursor, começando da primeira página")
+    public void findLoanAfterTest() throws Exception {
+
+        //Cenario
+        Loan loan = LoanServiceTest.createLoan();
+        loan.setId(1L);
+
+        BDDMockito.given(loanService.findAfter(Mockito.any(LoanFilterDTO.class), Mockito.isNull(), Mockito.eq(20)))
+                .willReturn(new SliceImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 20), false));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(LOAN_API.concat("?customer=Cicrano&after="))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request).andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("hasNext").value(false))
+                .andExpect(jsonPath("next").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Deve exportar emprestimos em CSV")
+    public void exportLoansCsvTest() throws Exception {
+
+        //Cenario
+        Loan loan = LoanServiceTest.createLoan();
+        loan.setId(1L);
+        loan.setBook(Book.builder().id(2L).title("Teste de APIs").author("Moisés Moura").isbn("123").build());
+        Mockito.doAnswer(invocation -> {
+            Consumer<Loan> consumer = invocation.getArgument(1);
+            consumer.accept(loan);
+            return null;
+        }).when(exportService).exportLoans(Mockito.any(LoanFilterDTO.class), Mockito.any());
+
+        //Execução
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/export?format=csv")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //Validação
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(content().string("id,isbn,customer,customerEmail,bookId,title,author\n"
+                        + "1,123,Cicrano,,2,\"Teste de APIs\",\"Moisés Moura\"\n"));
+    }
+
+    @Test
+    @DisplayName("Deve retornar bad request para formato de exportação inválido")
+    public void exportInvalidFormatTest() throws Exception {
+
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/export?format=xml")))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Invalid export format."));
+    }
+
 }
@@ -0,0 +1,140 @@
+package br.com.mmt.libraryapi.api.resource;
+
+import br.com.mmt.libraryapi.api.dto.BookDTO;
+import br.com.mmt.libraryapi.api.dto.BookLoanStatsDTO;
+import br.com.mmt.libraryapi.api.dto.LoanDTO;
+import br.com.mmt.libraryapi.api.dto.ReturnedLoanDTO;
+import br.com.mmt.libraryapi.service.LoanStatisticsService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Api do perfil reactive de ponta a ponta: WebFlux + R2DBC sobre o H2 em memória.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles({"test", "reactive"})
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+public class ReactiveControllerTest {
+
+    static final String BOOK_API = "/api/books";
+    static final String LOAN_API = "/api/loans";
+
+    @Autowired
+    WebTestClient client;
+
+    @Autowired
+    LoanStatisticsService statistics;
+
+    @Test
+    @DisplayName("Deve criar, obter e filtrar livros.")
+    public void createAndFindBookTest(){
+        //Cenário
+        BookDTO dto = BookDTO.builder().title("Reativo na prática").author("Fulano").isbn("r-001").build();
+
+        //Execução
+        BookDTO created = client.post().uri(BOOK_API).bodyValue(dto)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(BookDTO.class).returnResult().getResponseBody();
+
+        //Validação
+        assertThat(created.getId()).isNotNull();
+        client.get().uri(BOOK_API + "/" + created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("isbn").isEqualTo("r-001");
+        client.get().uri(BOOK_API + "?title=REATIVO&page=0&size=10")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("content.length()").isEqualTo(1)
+                .jsonPath("content[0].id").isEqualTo(created.getId())
+                .jsonPath("totalElements").isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve recusar um livro com isbn já cadastrado e um livro inválido.")
+    public void duplicatedIsbnAndInvalidBookTest(){
+        //Cenário
+        BookDTO dto = BookDTO.builder().title("Duplicado").author("Fulano").isbn("r-002").build();
+        client.post().uri(BOOK_API).bodyValue(dto).exchange().expectStatus().isCreated();
+
+        //Execução e Validação
+        client.post().uri(BOOK_API).bodyValue(dto)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("errors[0]").isEqualTo("Isbn já cadastrado.");
+        client.post().uri(BOOK_API).contentType(MediaType.APPLICATION_JSON).bodyValue("{}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("errors.length()").isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve emprestar, recusar um segundo emprestimo do livro e emprestar de novo após a devolução.")
+    public void loanRulesTest(){
+        //Cenário
+        BookDTO book = client.post().uri(BOOK_API)
+                .bodyValue(BookDTO.builder().title("Emprestado").author("Fulano").isbn("r-003").build())
+                .exchange()
+                .expectBody(BookDTO.class).returnResult().getResponseBody();
+        LoanDTO loan = LoanDTO.builder().isbn("r-003").customer("Cicrano").customerEmail("cicrano@ig.com").build();
+
+        //Execução
+        Long loanId = client.post().uri(LOAN_API).bodyValue(loan)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Long.class).returnResult().getResponseBody();
+
+        //Validação
+        client.post().uri(LOAN_API).bodyValue(loan)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("errors[0]").isEqualTo("Book already loaned.");
+        client.get().uri(LOAN_API + "?isbn=r-003&page=0&size=10")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("content[0].id").isEqualTo(loanId)
+                .jsonPath("content[0].book.title").isEqualTo("Emprestado")
+                .jsonPath("totalElements").isEqualTo(1);
+        client.get().uri(BOOK_API + "/" + book.getId() + "/loans")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("content[0].customer").isEqualTo("Cicrano");
+
+        client.patch().uri(LOAN_API + "/" + loanId).bodyValue(ReturnedLoanDTO.builder().returned(true).build())
+                .exchange()
+                .expectStatus().isOk();
+        client.post().uri(LOAN_API).bodyValue(loan)
+                .exchange()
+                .expectStatus().isCreated();
+        BookLoanStatsDTO stats = statistics.getBookStats(book.getId());
+        assertThat(stats.getTotalLoans()).isEqualTo(2);
+        assertThat(stats.getActiveLoans()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro ao emprestar um livro inexistente.")
+    public void loanBookNotFoundTest(){
+        //Cenário
+        LoanDTO loan = LoanDTO.builder().isbn("inexistente").customer("Cicrano").customerEmail("cicrano@ig.com").build();
+
+        //Execução e Validação
+        client.post().uri(LOAN_API).bodyValue(loan)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("errors[0]").isEqualTo("Book not found for passed isbn.");
+    }
+}
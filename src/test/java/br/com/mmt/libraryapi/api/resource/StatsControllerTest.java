@@ -0,0 +1,88 @@
+package br.com.mmt.libraryapi.api.resource;
+
+import br.com.mmt.libraryapi.api.dto.BookLoanStatsDTO;
+import br.com.mmt.libraryapi.api.dto.DailyLoanStatsDTO;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.service.BookService;
+import br.com.mmt.libraryapi.service.LoanStatisticsService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = StatsController.class)
+@AutoConfigureMockMvc
+public class StatsControllerTest {
+
+    static final String STATS_API = "/api/stats";
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    LoanStatisticsService statisticsService;
+
+    @MockBean
+    BookService bookService;
+
+    @Test
+    @DisplayName("Deve obter as estatísticas de emprestimo de um livro")
+    public void bookStatsTest() throws Exception {
+        //Cenário
+        BDDMockito.given(bookService.getById(1L)).willReturn(Optional.of(Book.builder().id(1L).build()));
+        BDDMockito.given(statisticsService.getBookStats(1L))
+                .willReturn(BookLoanStatsDTO.builder().bookId(1L).totalLoans(7).activeLoans(1).build());
+
+        //Execução e Validação
+        mvc.perform(MockMvcRequestBuilders.get(STATS_API + "/books/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("totalLoans").value(7))
+                .andExpect(jsonPath("activeLoans").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve retornar resource not found para as estatísticas de um livro inexistente")
+    public void bookStatsNotFoundTest() throws Exception {
+        //Cenário
+        BDDMockito.given(bookService.getById(Mockito.anyLong())).willReturn(Optional.empty());
+
+        //Execução e Validação
+        mvc.perform(MockMvcRequestBuilders.get(STATS_API + "/books/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+        Mockito.verify(statisticsService, Mockito.never()).getBookStats(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve obter os totais diários dos últimos 30 dias quando o período não for informado")
+    public void dailyStatsDefaultPeriodTest() throws Exception {
+        //Cenário
+        LocalDate today = LocalDate.now();
+        BDDMockito.given(statisticsService.getDailyStats(today.minusDays(29), today)).willReturn(Collections.singletonList(
+                DailyLoanStatsDTO.builder().date(today).loans(3).returns(2).build()));
+
+        //Execução e Validação
+        mvc.perform(MockMvcRequestBuilders.get(STATS_API + "/daily").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("length()").value(1))
+                .andExpect(jsonPath("[0].loans").value(3))
+                .andExpect(jsonPath("[0].returns").value(2));
+    }
+}
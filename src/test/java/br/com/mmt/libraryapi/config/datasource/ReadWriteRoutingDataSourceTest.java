@@ -0,0 +1,133 @@
+package br.com.mmt.libraryapi.config.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ReadWriteRoutingDataSourceTest {
+
+    DataSource primary;
+    DataSource replica0;
+    DataSource replica1;
+    ReadWriteRoutingDataSource dataSource;
+    boolean previousContext;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        primary = dataSourceWithValidConnections();
+        replica0 = dataSourceWithValidConnections();
+        replica1 = dataSourceWithValidConnections();
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica0);
+        replicas.put("replica-1", replica1);
+        dataSource = new ReadWriteRoutingDataSource(primary, replicas);
+        dataSource.afterPropertiesSet();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        previousContext = ReplicaReadContext.enter();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ReplicaReadContext.restore(previousContext);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    @DisplayName("Deve alternar entre os replicas nas leituras read-only")
+    public void roundRobinTest() throws SQLException {
+        //Execução
+        dataSource.getConnection();
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        //Validação
+        verify(replica0, times(2)).getConnection();
+        verify(replica1, times(1)).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    @DisplayName("Deve usar o primário fora dos métodos @ReadFromReplica e nas transações de escrita")
+    public void primaryTest() throws SQLException {
+        //Execução
+        ReplicaReadContext.restore(false);
+        dataSource.getConnection();
+        ReplicaReadContext.enter();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        dataSource.getConnection();
+
+        //Validação
+        verify(primary, times(2)).getConnection();
+        verifyNoInteractions(replica0, replica1);
+    }
+
+    @Test
+    @DisplayName("Deve tirar do rodízio o replica que falha e voltar com ele depois da verificação de saúde")
+    public void unhealthyReplicaTest() throws SQLException {
+        //Cenário
+        when(replica0.getConnection()).thenThrow(new SQLTransientConnectionException("replica down"));
+
+        //Execução
+        dataSource.getConnection();
+        dataSource.getConnection();
+        int healthyWhileDown = dataSource.healthyReplicas();
+        reset(replica0);
+        when(replica0.getConnection()).thenAnswer(invocation -> validConnection());
+        dataSource.checkReplicas();
+
+        //Validação
+        assertThat(healthyWhileDown).isEqualTo(1);
+        assertThat(dataSource.healthyReplicas()).isEqualTo(2);
+        verify(replica1, times(3)).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    @DisplayName("Deve ler do primário quando nenhum replica está saudável")
+    public void allReplicasDownTest() throws SQLException {
+        //Cenário
+        when(replica0.getConnection()).thenThrow(new SQLTransientConnectionException("replica down"));
+        when(replica1.getConnection()).thenThrow(new SQLTransientConnectionException("replica down"));
+
+        //Execução
+        Connection connection = dataSource.getConnection();
+        dataSource.getConnection();
+
+        //Validação
+        assertThat(connection).isNotNull();
+        assertThat(dataSource.healthyReplicas()).isZero();
+        verify(primary, times(2)).getConnection();
+        verify(replica0, times(1)).getConnection();
+        verify(replica1, times(1)).getConnection();
+    }
+
+    private static DataSource dataSourceWithValidConnections() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenAnswer(invocation -> validConnection());
+        return dataSource;
+    }
+
+    private static Connection validConnection() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        return connection;
+    }
+}
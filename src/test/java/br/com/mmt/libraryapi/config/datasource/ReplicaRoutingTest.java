@@ -0,0 +1,124 @@
+package br.com.mmt.libraryapi.config.datasource;
+
+import br.com.mmt.libraryapi.api.dto.LoanDTO;
+import br.com.mmt.libraryapi.api.dto.LoanFilterDTO;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.service.BookService;
+import br.com.mmt.libraryapi.service.LoanService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Roteamento de ponta a ponta com duas bases H2 em memória: a do Spring Boot como primário e uma como replica.
+ * Não há replicação entre elas, então o dado lido mostra de qual base veio.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "application.datasource.replicas.enabled=true",
+        "application.datasource.replicas.nodes[0].url=" + ReplicaRoutingTest.REPLICA_URL,
+        "application.datasource.replicas.nodes[0].username=sa"
+})
+@AutoConfigureMockMvc
+public class ReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica-routing;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    JdbcTemplate primary;
+
+    @Autowired
+    MockMvc mvc;
+
+    JdbcTemplate replica;
+
+    @BeforeEach
+    public void setUp() {
+        DriverManagerDataSource replicaDataSource = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+        Flyway.configure().dataSource(replicaDataSource).load().migrate();
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.update("insert into book (title, author, isbn, version) values ('Só no replica', 'Fulano', 'r-001', 0)");
+        Long bookId = replica.queryForObject("select id from book where isbn = 'r-001'", Long.class);
+        replica.update("insert into loan (book_id, customer, customer_email, loan_date, returned, active_book_id, version) "
+                + "values (?, 'Replica', 'replica@email.com', ?, false, ?, 0)", bookId, LocalDate.now(), bookId);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        for (JdbcTemplate jdbcTemplate : new JdbcTemplate[]{primary, replica}) {
+            jdbcTemplate.update("delete from loan");
+            jdbcTemplate.update("delete from book");
+        }
+    }
+
+    @Test
+    @DisplayName("Deve ler do replica nos métodos @ReadFromReplica e gravar no primário")
+    public void readFromReplicaTest() {
+        //Cenário
+        Book book = bookService.save(Book.builder().title("Só no primário").author("Cicrano").isbn("p-001").build());
+        Loan loan = loanService.save(Loan.builder().book(book).customer("Primario")
+                .customerEmail("primario@email.com").loanDate(LocalDate.now()).build());
+
+        //Execução
+        Page<Book> books = bookService.find(new Book(), PageRequest.of(0, 10));
+        Page<Loan> replicaLoans = loanService.find(LoanFilterDTO.builder().customer("Replica").build(), PageRequest.of(0, 10));
+        Page<Loan> primaryLoans = loanService.find(LoanFilterDTO.builder().customer("Primario").build(), PageRequest.of(0, 10));
+
+        //Validação
+        assertThat(books.getContent()).extracting(Book::getIsbn).containsExactly("r-001");
+        assertThat(replicaLoans.getTotalElements()).isEqualTo(1);
+        assertThat(primaryLoans.getTotalElements()).isZero();
+        assertThat(primary.queryForObject("select count(*) from loan", Long.class)).isEqualTo(1);
+        assertThat(loanService.getById(loan.getId())).isPresent();
+    }
+
+    @Test
+    @DisplayName("Deve gravar o emprestimo no primário mesmo depois de ler o livro do replica na mesma requisição")
+    public void createLoanAfterReplicaReadTest() throws Exception {
+        //Cenário: o mesmo livro nas duas bases, com o mesmo id
+        for (JdbcTemplate jdbcTemplate : new JdbcTemplate[]{primary, replica}) {
+            jdbcTemplate.update("insert into book (id, title, author, isbn, version) values (1000, 'Nas duas bases', 'Beltrano', 'm-001', 0)");
+        }
+        LoanDTO dto = LoanDTO.builder().isbn("m-001").customer("Mvc").customerEmail("mvc@email.com").build();
+
+        //Execução
+        mvc.perform(MockMvcRequestBuilders.post("/api/loans")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(dto)))
+                .andExpect(status().isCreated());
+
+        //Validação
+        assertThat(primary.queryForObject("select count(*) from loan where customer = 'Mvc'", Long.class)).isEqualTo(1);
+        assertThat(replica.queryForObject("select count(*) from loan where customer = 'Mvc'", Long.class)).isZero();
+    }
+}
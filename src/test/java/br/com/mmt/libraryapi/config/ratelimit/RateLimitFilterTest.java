@@ -0,0 +1,168 @@
+package br.com.mmt.libraryapi.config.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class RateLimitFilterTest {
+
+    SimpleMeterRegistry registry;
+
+    AtomicLong clock;
+
+    RateLimiter limiter;
+
+    RateLimitFilter filter;
+
+    @BeforeEach
+    public void setUp(){
+        RateLimitProperties properties = new RateLimitProperties();
+        RateLimitProperties.Limit search = new RateLimitProperties.Limit();
+        search.setCapacity(2);
+        search.setRefillPerSecond(0.5);
+        properties.getGroups().put(RateLimitFilter.SEARCH, search);
+        properties.getApiKeys().addAll(Arrays.asList("integrador-1", "integrador-2"));
+        properties.setMaxKeysPerIp(1);
+        registry = new SimpleMeterRegistry();
+        clock = new AtomicLong();
+        limiter = new RateLimiter(properties, registry, clock::get);
+        filter = new RateLimitFilter(limiter, properties.getClientHeader(), new ObjectMapper());
+    }
+
+    @Test
+    @DisplayName("Deve responder 429 com Retry-After depois da rajada e liberar quando o token é reposto")
+    public void throttleTest() throws Exception {
+        //Execução
+        int first = execute(search("10.0.0.1", null)).getStatus();
+        int second = execute(search("10.0.0.1", null)).getStatus();
+        MockHttpServletResponse throttled = execute(search("10.0.0.1", null));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        int afterRefill = execute(search("10.0.0.1", null)).getStatus();
+
+        //Validação
+        assertThat(first).isEqualTo(HttpStatus.OK.value());
+        assertThat(second).isEqualTo(HttpStatus.OK.value());
+        assertThat(throttled.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(throttled.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(throttled.getContentAsString()).contains("Too many requests.");
+        assertThat(afterRefill).isEqualTo(HttpStatus.OK.value());
+        assertThat(registry.counter("library.ratelimit.throttled", "group", RateLimitFilter.SEARCH).count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve ter um bucket por cliente, preferindo a chave de api ao IP")
+    public void bucketPerClientTest() throws Exception {
+        //Cenário: a rajada do IP se esgota
+        execute(search("10.0.0.1", null));
+        execute(search("10.0.0.1", null));
+
+        //Execução
+        int sameIp = execute(search("10.0.0.1", null)).getStatus();
+        int otherIp = execute(search("10.0.0.2", null)).getStatus();
+        int apiKey = execute(search("10.0.0.1", "integrador-1")).getStatus();
+
+        //Validação
+        assertThat(sameIp).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(otherIp).isEqualTo(HttpStatus.OK.value());
+        assertThat(apiKey).isEqualTo(HttpStatus.OK.value());
+        assertThat(limiter.mostThrottled(10)).extracting(RateLimiter.ClientStats::getClient).containsExactly("ip:10.0.0.1");
+    }
+
+    @Test
+    @DisplayName("Deve usar o bucket do IP para chaves de api desconhecidas ou acima do limite por IP")
+    public void invalidApiKeyTest() throws Exception {
+        //Cenário: a rajada do IP se esgota
+        execute(search("10.0.0.1", null));
+        execute(search("10.0.0.1", null));
+
+        //Execução
+        int unknownKey = execute(search("10.0.0.1", "inventada")).getStatus();
+        int firstKey = execute(search("10.0.0.1", "integrador-1")).getStatus();
+        int secondKey = execute(search("10.0.0.1", "integrador-2")).getStatus();
+        int secondKeyOtherIp = execute(search("10.0.0.2", "integrador-2")).getStatus();
+
+        //Validação
+        assertThat(unknownKey).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(firstKey).isEqualTo(HttpStatus.OK.value());
+        assertThat(secondKey).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(secondKeyOtherIp).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    @DisplayName("Deve identificar o grupo pelo mesmo caminho usado no mapeamento do Spring MVC")
+    public void groupPathTest(){
+        //Execução e Validação
+        assertThat(RateLimitFilter.group(new MockHttpServletRequest("GET", "/api/books/"))).isEqualTo(RateLimitFilter.SEARCH);
+        assertThat(RateLimitFilter.group(new MockHttpServletRequest("GET", "/api/books;x=1"))).isEqualTo(RateLimitFilter.SEARCH);
+        assertThat(RateLimitFilter.group(new MockHttpServletRequest("GET", "/api//books"))).isEqualTo(RateLimitFilter.SEARCH);
+        assertThat(RateLimitFilter.group(new MockHttpServletRequest("POST", "/api/loans/batch/"))).isEqualTo(RateLimitFilter.LOANS);
+    }
+
+    @Test
+    @DisplayName("Não deve limitar rotas fora dos grupos nem grupos sem limite configurado")
+    public void unlimitedTest() throws Exception {
+        //Execução
+        for (int i = 0; i < 5; i++) {
+            assertThat(execute(new MockHttpServletRequest("GET", "/api/books/1")).getStatus()).isEqualTo(HttpStatus.OK.value());
+            assertThat(execute(new MockHttpServletRequest("POST", "/api/books")).getStatus()).isEqualTo(HttpStatus.OK.value());
+        }
+
+        //Validação
+        assertThat(RateLimitFilter.group(new MockHttpServletRequest("GET", "/api/books/1"))).isNull();
+        assertThat(RateLimitFilter.group(new MockHttpServletRequest("POST", "/api/books"))).isEqualTo(RateLimitFilter.WRITES);
+        assertThat(RateLimitFilter.group(new MockHttpServletRequest("POST", "/api/loans/batch"))).isEqualTo(RateLimitFilter.LOANS);
+        assertThat(limiter.clients()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve mostrar no actuator apenas o início da chave de api")
+    @SuppressWarnings("unchecked")
+    public void endpointTest() throws Exception {
+        //Cenário
+        for (int i = 0; i < 3; i++) {
+            execute(search("10.0.0.1", "integrador-1"));
+        }
+
+        //Execução
+        Map<String, Object> result = new RateLimitEndpoint(limiter, new RateLimitProperties()).rateLimit();
+
+        //Validação
+        assertThat((Iterable<RateLimiter.ClientStats>) result.get("throttled"))
+                .extracting(RateLimiter.ClientStats::getClient, RateLimiter.ClientStats::getThrottled)
+                .containsExactly(tuple("key:inte***", 1L));
+    }
+
+    private MockHttpServletResponse execute(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest search(String ip, String apiKey){
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books");
+        request.setRemoteAddr(ip);
+        if(apiKey != null){
+            request.addHeader("X-API-Key", apiKey);
+        }
+        return request;
+    }
+}
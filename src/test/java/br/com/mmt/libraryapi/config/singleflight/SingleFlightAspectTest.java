@@ -0,0 +1,169 @@
+package br.com.mmt.libraryapi.config.singleflight;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class SingleFlightAspectTest {
+
+    SimpleMeterRegistry registry;
+
+    Lookup target;
+
+    Lookup lookup;
+
+    ExecutorService executor;
+
+    @BeforeEach
+    public void setUp(){
+        registry = new SimpleMeterRegistry();
+        target = new Lookup();
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new SingleFlightAspect(registry, 5000));
+        lookup = factory.getProxy();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    public void tearDown(){
+        target.release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Deve executar uma única vez as chamadas concorrentes com a mesma chave")
+    public void coalesceTest() throws Exception {
+        //Cenário: a primeira chamada fica presa até as outras estarem esperando por ela
+        Future<String> leader = executor.submit(() -> lookup.find("123"));
+        target.started.await(5, TimeUnit.SECONDS);
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            followers.add(executor.submit(() -> lookup.find("123")));
+        }
+        waitForFollowers(3);
+
+        //Execução
+        target.release.countDown();
+
+        //Validação
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("livro 123");
+        for (Future<String> follower : followers) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("livro 123");
+        }
+        assertThat(target.calls.get()).isEqualTo(1);
+        assertThat(count("find", "leader")).isEqualTo(1);
+        assertThat(count("find", "coalesced")).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve executar sozinha a chamada que esperou mais que o timeout")
+    public void timeoutTest() throws Exception {
+        //Cenário
+        Future<String> leader = executor.submit(() -> lookup.findWithTimeout("123"));
+        target.started.await(5, TimeUnit.SECONDS);
+
+        //Execução: a segunda chamada desiste de esperar e também fica presa no release
+        Future<String> follower = executor.submit(() -> lookup.findWithTimeout("123"));
+        CompletableFuture.runAsync(() -> {
+            while (count("findWithTimeout", "timeout") == 0) {
+                Thread.yield();
+            }
+            target.release.countDown();
+        });
+
+        //Validação
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("livro 123");
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("livro 123");
+        assertThat(target.calls.get()).isEqualTo(2);
+        assertThat(count("findWithTimeout", "timeout")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Não deve compartilhar execuções dentro de uma transação nem entre chaves diferentes")
+    public void notCoalescedTest() throws Exception {
+        //Cenário
+        target.release.countDown();
+
+        //Execução
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            lookup.find("123");
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        lookup.find("123");
+        lookup.find("456");
+
+        //Validação
+        assertThat(target.calls.get()).isEqualTo(3);
+        assertThat(count("find", "leader")).isEqualTo(2);
+    }
+
+    private double count(String method, String outcome){
+        return registry.counter(SingleFlightAspect.CALLS, "method", "Lookup." + method, "outcome", outcome).count();
+    }
+
+    //Seguidores parados no get do resultado da primeira chamada
+    private void waitForFollowers(int followers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            long waiting = Thread.getAllStackTraces().entrySet().stream()
+                    .filter(entry -> entry.getKey().getState() == Thread.State.TIMED_WAITING)
+                    .filter(entry -> Arrays.stream(entry.getValue())
+                            .anyMatch(frame -> frame.getClassName().equals(CompletableFuture.class.getName())
+                                    && frame.getMethodName().equals("get")))
+                    .count();
+            if(waiting >= followers){
+                return;
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    static class Lookup {
+
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @SingleFlight
+        public String find(String isbn) throws InterruptedException {
+            return load(isbn);
+        }
+
+        @SingleFlight(timeoutMs = 50)
+        public String findWithTimeout(String isbn) throws InterruptedException {
+            return load(isbn);
+        }
+
+        private String load(String isbn) throws InterruptedException {
+            calls.incrementAndGet();
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "livro " + isbn;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package br.com.mmt.libraryapi.config.threads;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ConnectionLimitingDataSourceTest {
+
+    DataSource target;
+    ConnectionLimitingDataSource dataSource;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        target = mock(DataSource.class);
+        when(target.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        dataSource = new ConnectionLimitingDataSource(target, 2, 50);
+    }
+
+    @Test
+    @DisplayName("Deve esperar e falhar quando todas as conexões do limite estão em uso")
+    public void limitReachedTest() throws SQLException {
+        //Cenário
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        //Execução
+        Throwable exception = catchThrowable(() -> dataSource.getConnection());
+
+        //Validação
+        assertThat(exception).isInstanceOf(SQLTransientConnectionException.class);
+        verify(target, times(2)).getConnection();
+    }
+
+    @Test
+    @DisplayName("Deve devolver a permissão uma única vez ao fechar a conexão")
+    public void releaseOnCloseTest() throws SQLException {
+        //Cenário
+        Connection connection = dataSource.getConnection();
+        dataSource.getConnection();
+
+        //Execução
+        connection.close();
+        connection.close();
+
+        //Validação
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+        assertThat(dataSource.getConnection()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Deve devolver a permissão quando o pool não entrega a conexão")
+    public void releaseOnFailureTest() throws SQLException {
+        //Cenário
+        when(target.getConnection()).thenThrow(new SQLTransientConnectionException("pool timeout"));
+
+        //Execução
+        Throwable exception = catchThrowable(() -> dataSource.getConnection());
+
+        //Validação
+        assertThat(exception).hasMessage("pool timeout");
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+    }
+}
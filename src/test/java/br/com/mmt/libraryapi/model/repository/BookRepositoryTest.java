@@ -7,12 +7,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -63,6 +70,27 @@ public class BookRepositoryTest {
         assertThat(foundBook.isPresent()).isTrue();
     }
 
+    @Test
+    @DisplayName("Deve incrementar a versão ao atualizar e recusar a gravação de uma versão antiga")
+    public void optimisticLockTest(){
+
+        //Cenário
+        Book book = entityManager.persist(createMockBook());
+        entityManager.flush();
+        entityManager.detach(book);
+        Book stale = Book.builder().id(book.getId()).title("Antigo").author(book.getAuthor()).isbn(book.getIsbn()).version(book.getVersion()).build();
+        book.setTitle("Novo");
+
+        //Execução
+        Book updated = repository.saveAndFlush(book);
+        entityManager.clear();
+        Throwable exception = catchThrowable(() -> repository.saveAndFlush(stale));
+
+        //Validação
+        assertThat(updated.getVersion()).isEqualTo(1L);
+        assertThat(exception).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+    }
+
     @Test
     @DisplayName("Deve salvar um livro")
     public void saveBookTest(){
@@ -91,6 +119,54 @@ public class BookRepositoryTest {
         assertThat(deletedBook).isNull();
     }
 
+    @Test
+    @DisplayName("Deve buscar livros por Example a partir do último id retornado")
+    public void findAllAfterTest(){
+
+        //Cenário
+        Book first = createMockBook();
+        Book second = Book.builder().author("Maria").isbn("456").title("Api Reativa").build();
+        Book other = Book.builder().author("Maria").isbn("789").title("Banco de dados").build();
+        entityManager.persist(first);
+        entityManager.persist(second);
+        entityManager.persist(other);
+        Example<Book> example = Example.of(Book.builder().title("api").build(),
+                ExampleMatcher.matching().withIgnoreCase().withIgnoreNullValues()
+                        .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+        //Execução
+        Slice<Book> firstPage = repository.findAllAfter(example, 0L, 1);
+        Slice<Book> secondPage = repository.findAllAfter(example, first.getId(), 1);
+        //Validação
+        assertThat(firstPage.getContent()).containsExactly(first);
+        assertThat(firstPage.hasNext()).isTrue();
+        assertThat(secondPage.getContent()).containsExactly(second);
+        assertThat(secondPage.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros por Example paginados por offset sem contar o total")
+    public void findAllSliceTest(){
+
+        //Cenário
+        Book first = createMockBook();
+        Book second = Book.builder().author("Maria").isbn("456").title("Api Reativa").build();
+        Book other = Book.builder().author("Maria").isbn("789").title("Banco de dados").build();
+        entityManager.persist(first);
+        entityManager.persist(second);
+        entityManager.persist(other);
+        Example<Book> example = Example.of(Book.builder().title("api").build(),
+                ExampleMatcher.matching().withIgnoreCase().withIgnoreNullValues()
+                        .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+        //Execução
+        Slice<Book> firstPage = repository.findAllSlice(example, PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "title")));
+        Slice<Book> secondPage = repository.findAllSlice(example, PageRequest.of(1, 1, Sort.by(Sort.Direction.DESC, "title")));
+        //Validação
+        assertThat(firstPage.getContent()).containsExactly(first);
+        assertThat(firstPage.hasNext()).isTrue();
+        assertThat(secondPage.getContent()).containsExactly(second);
+        assertThat(secondPage.hasNext()).isFalse();
+    }
+
     public static Book createMockBook() {
         return Book.builder()
                 .author("Moises")
@@ -2,6 +2,8 @@ package br.com.mmt.libraryapi.model.repository;
 
 import br.com.mmt.libraryapi.model.entity.Book;
 import br.com.mmt.libraryapi.model.entity.Loan;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,18 +12,22 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import javax.persistence.PersistenceException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 import static br.com.mmt.libraryapi.model.repository.BookRepositoryTest.createMockBook;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 public class LoanRepositoryTest {
 
     @Autowired
@@ -30,6 +36,8 @@ public class LoanRepositoryTest {
     @Autowired
     private LoanRepository repository;
 
+    private int persistedBooks;
+
     @Test
     @DisplayName("deve verificar se existe emprestimo não devolvido para o livro")
     public void existByBookAndNotReturnedTest(){
@@ -57,6 +65,22 @@ public class LoanRepositoryTest {
 
     }
 
+    @Test
+    @DisplayName("deve buscar emprestimos pelo isbn ou customer a partir do último id, sem total")
+    public void findhByBookIsbnOrCustomerAfterTest(){
+        //Cenário
+        Loan first = createAndPersistLoan(LocalDate.now());
+        Loan second = createAndPersistLoan(LocalDate.now());
+        //Execução
+        Slice<Loan> firstPage = repository.findhByBookIsbnOrCustomerAfter("123", "Cicrano", 0L, PageRequest.of(0, 1));
+        Slice<Loan> secondPage = repository.findhByBookIsbnOrCustomerAfter("123", "Cicrano", first.getId(), PageRequest.of(0, 1));
+        //Validação
+        assertThat(firstPage.getContent()).containsExactly(first);
+        assertThat(firstPage.hasNext()).isTrue();
+        assertThat(secondPage.getContent()).containsExactly(second);
+        assertThat(secondPage.hasNext()).isFalse();
+    }
+
     @Test
     @DisplayName("Deve obter empréstimos cuja data emprestimo fo menor ou igual a três dias atras e não retornados.")
     public void findByLoanDateLessThanAndNotReturnedTest(){
@@ -75,8 +99,136 @@ public class LoanRepositoryTest {
         assertThat(result).isEmpty();
     }
 
+    @Test
+    @DisplayName("Deve percorrer os emprestimos atrasados em ordem de email e id a partir da última chave")
+    public void findLateLoansAfterTest(){
+        Loan second = createAndPersistLoan(LocalDate.now().minusDays(5));
+        second.setCustomerEmail("b@mail.com");
+        Loan first = createAndPersistLoan(LocalDate.now().minusDays(5));
+        first.setCustomerEmail("a@mail.com");
+        Loan notLate = createAndPersistLoan(LocalDate.now());
+        notLate.setCustomerEmail("a@mail.com");
+        entityManager.flush();
+
+        List<Loan> firstChunk = repository.findLateLoansAfter(LocalDate.now().minusDays(4), "", 0L, PageRequest.of(0, 1));
+        List<Loan> secondChunk = repository.findLateLoansAfter(LocalDate.now().minusDays(4), "a@mail.com", first.getId(), PageRequest.of(0, 1));
+
+        assertThat(firstChunk).containsExactly(first);
+        assertThat(secondChunk).containsExactly(second);
+    }
+
+    @Test
+    @DisplayName("Deve listar os emprestimos ativos por livro")
+    public void findActiveLoansTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        Loan returnedLoan = createAndPersistLoan(LocalDate.now());
+        returnedLoan.setReturned(true);
+        entityManager.flush();
+
+        List<LoanRepository.ActiveLoan> result = repository.findActiveLoans();
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getBookId()).isEqualTo(loan.getBook().getId());
+        assertThat(result.get(0).getLoanId()).isEqualTo(loan.getId());
+    }
+
+    @Test
+    @DisplayName("Não deve permitir dois emprestimos ativos do mesmo livro")
+    public void uniqueActiveLoanTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        Loan duplicated = Loan.builder()
+                .book(loan.getBook())
+                .customer("Fulano")
+                .loanDate(LocalDate.now())
+                .build();
+
+        Throwable throwable = catchThrowable(() -> entityManager.persistAndFlush(duplicated));
+
+        assertThat(throwable).isInstanceOf(PersistenceException.class);
+    }
+
+    @Test
+    @DisplayName("Deve carregar a página de emprestimos com os livros em um select mais o count")
+    public void findhByBookIsbnOrCustomerStatementCountTest(){
+        createAndPersistLoans(5);
+        Statistics statistics = clearAndResetStatistics();
+
+        Page<Loan> loans = repository.findhByBookIsbnOrCustomer("123", "Cicrano", PageRequest.of(0, 3));
+        loans.forEach(loan -> loan.getBook().getTitle());
+
+        assertThat(loans.getContent()).hasSize(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve carregar a página de emprestimos do livro com o livro em um select mais o count")
+    public void findByBookStatementCountTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        loan.setReturned(true);
+        for (int i = 0; i < 4; i++) {
+            entityManager.persist(Loan.builder().book(loan.getBook()).customer("Cicrano").loanDate(LocalDate.now()).returned(true).build());
+        }
+        Book book = loan.getBook();
+        Statistics statistics = clearAndResetStatistics();
+
+        Page<Loan> loans = repository.findByBook(book, PageRequest.of(0, 3));
+        loans.forEach(found -> found.getBook().getTitle());
+
+        assertThat(loans.getContent()).hasSize(3);
+        assertThat(loans.getTotalElements()).isEqualTo(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve carregar as fatias por cursor com os livros em um único select")
+    public void sliceStatementCountTest(){
+        List<Loan> persisted = createAndPersistLoans(5);
+        Statistics statistics = clearAndResetStatistics();
+
+        Slice<Loan> byFilter = repository.findhByBookIsbnOrCustomerAfter("123", "Cicrano", 0L, PageRequest.of(0, 3));
+        byFilter.forEach(loan -> loan.getBook().getTitle());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        statistics.clear();
+        Slice<Loan> byBook = repository.findByBookAndIdGreaterThanOrderById(persisted.get(0).getBook(), 0L, PageRequest.of(0, 3));
+        byBook.forEach(loan -> loan.getBook().getTitle());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve carregar os atrasados com os livros em um único select")
+    public void lateLoansStatementCountTest(){
+        createAndPersistLoans(5).forEach(loan -> loan.setLoanDate(LocalDate.now().minusDays(5)));
+        Statistics statistics = clearAndResetStatistics();
+
+        List<Loan> loans = repository.findByLoanDateLessThanAndNotReturned(LocalDate.now().minusDays(4));
+        loans.forEach(loan -> loan.getBook().getTitle());
+
+        assertThat(loans).hasSize(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private List<Loan> createAndPersistLoans(int count) {
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            loans.add(createAndPersistLoan(LocalDate.now()));
+        }
+        return loans;
+    }
+
+    private Statistics clearAndResetStatistics() {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
     private Loan createAndPersistLoan(LocalDate loanDate) {
         Book book = createMockBook();
+        //Isbn é único: o primeiro livro fica com "123" e os seguintes com 124, 125...
+        book.setIsbn(String.valueOf(123 + persistedBooks++));
         entityManager.persist(book);
         Loan loan = Loan.builder()
                 .book(book)
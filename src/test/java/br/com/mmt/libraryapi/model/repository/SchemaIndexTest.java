@@ -0,0 +1,153 @@
+package br.com.mmt.libraryapi.model.repository;
+
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.entity.EmailOutbox;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Confere no plano do H2 (EXPLAIN) que as consultas dos repositórios usam índice em vez de tableScan.
+ * O SQL é o gerado pelo Hibernate para cada método, capturado pelo StatementInspector.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "br.com.mmt.libraryapi.model.repository.SchemaIndexTest$CapturedSql")
+public class SchemaIndexTest {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    EmailOutboxRepository outboxRepository;
+
+    @Test
+    @DisplayName("existsByIsbn e findByIsbn devem usar o índice único de isbn")
+    public void isbnIndexTest(){
+        assertThat(plans(() -> bookRepository.existsByIsbn("123"))).allSatisfy(plan -> assertThat(plan).contains("UX_BOOK_ISBN"));
+        assertThat(plans(() -> bookRepository.findByIsbn("123"))).allSatisfy(plan -> assertThat(plan).contains("UX_BOOK_ISBN"));
+        assertThat(plans(() -> bookRepository.findExistingIsbns(Arrays.asList("1", "2", "3"))))
+                .allSatisfy(plan -> assertThat(plan).contains("UX_BOOK_ISBN"));
+        assertThat(plans(() -> bookRepository.findByIsbnIn(Arrays.asList("1", "2", "3"))))
+                .allSatisfy(plan -> assertThat(plan).contains("UX_BOOK_ISBN"));
+    }
+
+    @Test
+    @DisplayName("existsByBookAndNotReturned e findByBook devem usar o índice de livro e devolução")
+    public void bookReturnedIndexTest(){
+        Book book = entityManager.persistAndFlush(Book.builder().title("Livro").author("Autor").isbn("123").build());
+
+        //O H2 cria um índice próprio para a foreign key em book_id e pode escolher qualquer um dos dois
+        assertThat(plans(() -> loanRepository.existsByBookAndNotReturned(book)))
+                .allSatisfy(plan -> assertIndexed(plan, "BOOK_ID = ?1"));
+        assertThat(plans(() -> loanRepository.findByBook(book, PageRequest.of(0, 10))))
+                .allSatisfy(plan -> assertIndexed(plan, "BOOK_ID = ?1"));
+    }
+
+    @Test
+    @DisplayName("findByCustomer e findByBookIsbn devem usar os índices de customer e de isbn")
+    public void customerIndexTest(){
+        assertThat(plans(() -> loanRepository.findByCustomer("Fulano", PageRequest.of(0, 10))))
+                .allSatisfy(plan -> assertThat(plan).contains("IDX_LOAN_CUSTOMER"));
+        assertThat(plans(() -> loanRepository.findByBookIsbn("123", PageRequest.of(0, 10))))
+                .allSatisfy(plan -> assertIndexed(plan, "UX_BOOK_ISBN"));
+    }
+
+    @Test
+    @DisplayName("As consultas de emprestimos atrasados devem usar o índice de data do emprestimo")
+    public void overdueIndexTest(){
+        LocalDate loanDate = LocalDate.now().minusDays(4);
+        assertThat(plans(() -> loanRepository.countLateLoans(loanDate)))
+                .allSatisfy(plan -> assertThat(plan).contains("IDX_LOAN_OVERDUE"));
+        assertThat(plans(() -> loanRepository.findLateLoansAfter(loanDate, "", 0L, PageRequest.of(0, 100))))
+                .allSatisfy(plan -> assertThat(plan).contains("IDX_LOAN_OVERDUE"));
+    }
+
+    @Test
+    @DisplayName("A fila de vencimentos deve usar o índice de data do emprestimo")
+    public void overdueQueueIndexTest(){
+        LocalDate loanDate = LocalDate.now().minusDays(4);
+        assertThat(plans(() -> loanRepository.findActiveLoanDatesAfter(loanDate)))
+                .allSatisfy(plan -> assertIndexed(plan, "IDX_LOAN_OVERDUE"));
+        assertThat(plans(() -> loanRepository.findActiveByLoanDateAfter(loanDate, 0L, PageRequest.of(0, 1000))))
+                .allSatisfy(plan -> assertThat(plan).contains("IDX_LOAN_OVERDUE"));
+    }
+
+    @Test
+    @DisplayName("As consultas de emprestimos ativos devem usar o índice único de active_book_id")
+    public void activeLoanIndexTest(){
+        assertThat(plans(() -> loanRepository.findActiveLoansByBookIdIn(Arrays.asList(1L, 2L))))
+                .allSatisfy(plan -> assertThat(plan).contains("UX_LOAN_ACTIVE_BOOK"));
+    }
+
+    @Test
+    @DisplayName("A reserva da outbox deve usar o índice de status e próxima tentativa e a leitura do lote o de claimed_by")
+    public void outboxIndexTest(){
+        LocalDateTime now = LocalDateTime.now();
+        assertThat(plans(() -> outboxRepository.claim("token", now, now.plusMinutes(5), 50)))
+                .allSatisfy(plan -> assertThat(plan).contains("IDX_EMAIL_OUTBOX_STATUS_NEXT_ATTEMPT"));
+        assertThat(plans(() -> outboxRepository.findByClaimedByAndStatusOrderById("token", EmailOutbox.Status.PENDING)))
+                .allSatisfy(plan -> assertThat(plan).contains("IDX_EMAIL_OUTBOX_CLAIMED_BY"));
+    }
+
+    private static void assertIndexed(String plan, String indexCondition){
+        assertThat(plan).doesNotContain("TABLESCAN");
+        assertThat(plan).contains(indexCondition);
+    }
+
+    /**
+     * Planos dos selects e updates executados pela chamada; falha se a chamada não gerou nenhum.
+     */
+    private List<String> plans(Runnable call){
+        CapturedSql.STATEMENTS.clear();
+        call.run();
+        List<String> plans = CapturedSql.STATEMENTS.stream()
+                .filter(sql -> sql.trim().toLowerCase().startsWith("select") || sql.trim().toLowerCase().startsWith("update"))
+                .map(this::plan)
+                .collect(Collectors.toList());
+        assertThat(plans).isNotEmpty();
+        return plans;
+    }
+
+    private String plan(String sql){
+        return jdbcTemplate.queryForObject("explain " + sql, String.class).toUpperCase();
+    }
+
+    public static class CapturedSql implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.api.dto.BookImportResultDTO;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.repository.BookRepository;
+import br.com.mmt.libraryapi.service.impl.BookImportServiceImpl;
+import br.com.mmt.libraryapi.service.impl.BookSearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class BookImportServiceTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    BookRepository repository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    BookImportService service;
+
+    BookSearchIndex searchIndex;
+
+    @BeforeEach
+    public void setUp(){
+        searchIndex = new BookSearchIndex(new JdbcTemplate(dataSource));
+        service = new BookImportServiceImpl(repository,
+                searchIndex,
+                new JdbcTemplate(dataSource),
+                new TransactionTemplate(transactionManager),
+                new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                2,
+                10);
+    }
+
+    @Test
+    @DisplayName("Deve importar livros de um arquivo NDJSON em blocos")
+    public void importNdjsonTest() throws IOException {
+        //Cenário
+        String ndjson = "{\"title\":\"Api Restfull\",\"author\":\"Moises\",\"isbn\":\"1\"}\n"
+                + "{\"title\":\"Spring\",\"author\":\"Maria\",\"isbn\":\"2\"}\n"
+                + "\n"
+                + "{\"title\":\"Java\",\"author\":\"Ana\",\"isbn\":\"3\"}\n";
+        //Execução
+        BookImportResultDTO result = service.importBooks(stream(ndjson), BookImportService.Format.NDJSON);
+        //Validação
+        assertThat(result.getProcessed()).isEqualTo(3);
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getFailed()).isZero();
+        assertThat(repository.findByIsbn("3")).isPresent();
+        assertThat(repository.count()).isEqualTo(3);
+        assertThat(searchIndex.search("spring", PageRequest.of(0, 10)).getContent())
+                .containsExactly(repository.findByIsbn("2").get().getId());
+    }
+
+    @Test
+    @DisplayName("Deve reportar as linhas com erro sem interromper a importação")
+    public void importWithErrorsTest() throws IOException {
+        //Cenário
+        entityManager.persist(Book.builder().title("Api Restfull").author("Moises").isbn("1").build());
+        String csv = "title,author,isbn\n"
+                + "Api Restfull,Moises,1\n"
+                + "Spring,,2\n"
+                + "Java,Ana,3\n"
+                + "Java,Ana,3\n"
+                + "Kotlin,\"Pedro\",4\n";
+        //Execução
+        BookImportResultDTO result = service.importBooks(stream(csv), BookImportService.Format.CSV);
+        //Validação
+        assertThat(result.getProcessed()).isEqualTo(5);
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getErrors()).extracting("line").containsExactly(3L, 2L, 5L);
+        assertThat(result.getErrors()).extracting("message")
+                .containsExactly("author must not be empty", "Isbn já cadastrado.", "Isbn já cadastrado.");
+        assertThat(repository.findByIsbn("4").get().getAuthor()).isEqualTo("Pedro");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Deve gravar linha a linha quando outro cadastro gravar o isbn durante o bloco")
+    public void importConcurrentIsbnTest() throws IOException {
+        //Cenário: a consulta de isbns já cadastrados não enxerga o livro 2
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("insert into book (title, author, isbn, version) values ('Spring', 'Maria', '2', 0)");
+        BookRepository racing = mock(BookRepository.class, delegatesTo(repository));
+        doReturn(Collections.emptySet()).when(racing).findExistingIsbns(any());
+        service = new BookImportServiceImpl(racing, searchIndex, jdbcTemplate, new TransactionTemplate(transactionManager),
+                new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), 10, 10);
+        String ndjson = "{\"title\":\"Api Restfull\",\"author\":\"Moises\",\"isbn\":\"1\"}\n"
+                + "{\"title\":\"Spring\",\"author\":\"Maria\",\"isbn\":\"2\"}\n"
+                + "{\"title\":\"Java\",\"author\":\"Ana\",\"isbn\":\"3\"}\n";
+
+        try {
+            //Execução
+            BookImportResultDTO result = service.importBooks(stream(ndjson), BookImportService.Format.NDJSON);
+
+            //Validação
+            assertThat(result.getImported()).isEqualTo(2);
+            assertThat(result.getFailed()).isEqualTo(1);
+            assertThat(result.getErrors()).extracting("line", "message").containsExactly(tuple(2L, "Isbn já cadastrado."));
+            assertThat(repository.findByIsbn("1")).isPresent();
+            assertThat(repository.findByIsbn("3")).isPresent();
+            assertThat(repository.count()).isEqualTo(3);
+        } finally {
+            //Grava fora da transação do teste
+            jdbcTemplate.update("delete from book");
+        }
+    }
+
+    @Test
+    @DisplayName("Deve reportar linha inválida no NDJSON")
+    public void importInvalidLineTest() throws IOException {
+        //Cenário
+        String ndjson = "{\"title\":\"Api Restfull\",\"author\":\"Moises\",\"isbn\":\"1\"}\n"
+                + "{nao e json}\n"
+                + "null\n";
+        //Execução
+        BookImportResultDTO result = service.importBooks(stream(ndjson), BookImportService.Format.NDJSON);
+        //Validação
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getErrors().get(0).getLine()).isEqualTo(2);
+        assertThat(result.getErrors().get(1).getLine()).isEqualTo(3);
+        assertThat(result.getErrors().get(1).getMessage()).startsWith("Linha inválida");
+    }
+
+    private ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
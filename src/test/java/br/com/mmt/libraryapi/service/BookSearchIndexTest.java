@@ -0,0 +1,90 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.service.impl.BookSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class BookSearchIndexTest {
+
+    BookSearchIndex index;
+
+    @BeforeEach
+    public void setUp(){
+        index = new BookSearchIndex(mock(JdbcTemplate.class));
+        index.index(Book.builder().id(1L).title("Memórias Póstumas de Brás Cubas").author("Machado de Assis").isbn("978-85-359-0277-8").build());
+        index.index(Book.builder().id(2L).title("Dom Casmurro").author("Machado de Assis").isbn("978-85-7232-144-9").build());
+        index.index(Book.builder().id(3L).title("A Educação pela Pedra").author("João Cabral").isbn("978-85-209-1234-5").build());
+    }
+
+    @Test
+    @DisplayName("Deve encontrar ignorando acentos e caixa")
+    public void searchAccentFoldingTest(){
+        assertThat(index.search("MEMORIAS bras", PageRequest.of(0, 10)).getContent()).containsExactly(1L);
+        assertThat(index.search("educação", PageRequest.of(0, 10)).getContent()).containsExactly(3L);
+        assertThat(index.search("joao", PageRequest.of(0, 10)).getContent()).containsExactly(3L);
+    }
+
+    @Test
+    @DisplayName("Deve casar prefixos e exigir todos os termos")
+    public void searchPrefixAndAllTermsTest(){
+        assertThat(index.search("macha", PageRequest.of(0, 10)).getContent()).containsExactly(1L, 2L);
+        assertThat(index.search("machado casmurro", PageRequest.of(0, 10)).getContent()).containsExactly(2L);
+        assertThat(index.search("machado pedra", PageRequest.of(0, 10)).getContent()).isEmpty();
+        assertThat(index.search("de", PageRequest.of(0, 10)).getContent()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve encontrar pelo isbn com ou sem hífens")
+    public void searchIsbnTest(){
+        assertThat(index.search("978-85-7232-144-9", PageRequest.of(0, 10)).getContent()).containsExactly(2L);
+        assertThat(index.search("9788572321449", PageRequest.of(0, 10)).getContent()).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Deve ordenar por relevância: título vale mais que autor e termo inteiro mais que prefixo")
+    public void searchRankingTest(){
+        index.index(Book.builder().id(4L).title("Assis e o Realismo").author("Maria").isbn("1").build());
+
+        assertThat(index.search("assis", PageRequest.of(0, 10)).getContent()).containsExactly(4L, 1L, 2L);
+    }
+
+    @Test
+    @DisplayName("Deve paginar o resultado e informar o total")
+    public void searchPaginationTest(){
+        Page<Long> page = index.search("978", PageRequest.of(1, 2));
+
+        assertThat(page.getContent()).containsExactly(3L);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve manter inteiras as palavras com letras fora do ASCII")
+    public void searchNonAsciiLettersTest(){
+        index.index(Book.builder().id(4L).title("Øresund Straße").author("村上春樹").isbn("4").build());
+
+        assertThat(index.search("øresund", PageRequest.of(0, 10)).getContent()).containsExactly(4L);
+        assertThat(index.search("straße", PageRequest.of(0, 10)).getContent()).containsExactly(4L);
+        assertThat(index.search("村上", PageRequest.of(0, 10)).getContent()).containsExactly(4L);
+        assertThat(index.search("stra", PageRequest.of(0, 10)).getContent()).containsExactly(4L);
+    }
+
+    @Test
+    @DisplayName("Deve refletir atualizações e remoções")
+    public void updateAndRemoveTest(){
+        index.index(Book.builder().id(2L).title("Quincas Borba").author("Machado de Assis").isbn("2").build());
+        index.remove(1L);
+
+        assertThat(index.search("casmurro", PageRequest.of(0, 10)).getContent()).isEmpty();
+        assertThat(index.search("quincas", PageRequest.of(0, 10)).getContent()).containsExactly(2L);
+        assertThat(index.search("memorias", PageRequest.of(0, 10)).getContent()).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+}
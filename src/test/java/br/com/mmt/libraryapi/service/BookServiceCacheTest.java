@@ -0,0 +1,160 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.api.cache.BookJsonCache;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.repository.BookRepository;
+import br.com.mmt.libraryapi.service.impl.BookSearchIndex;
+import br.com.mmt.libraryapi.service.impl.CountEstimator;
+import br.com.mmt.libraryapi.service.impl.BookServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@ContextConfiguration(classes = BookServiceCacheTest.CacheTestConfig.class)
+public class BookServiceCacheTest {
+
+    @Autowired
+    BookService service;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @MockBean
+    BookRepository repository;
+
+    @BeforeEach
+    public void setUp(){
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    @DisplayName("Deve consultar a base apenas uma vez para o mesmo id")
+    public void getByIdCachedTest(){
+        //cenário
+        Book book = Book.builder().id(1L).isbn("123").build();
+        when(repository.findById(1L)).thenReturn(Optional.of(book));
+
+        //Execução
+        service.getById(1L);
+        Optional<Book> foundBook = service.getById(1L);
+
+        //Validações
+        assertThat(foundBook).contains(book);
+        verify(repository, times(1)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Deve consultar a base apenas uma vez para o mesmo isbn")
+    public void getByIsbnCachedTest(){
+        //cenário
+        Book book = Book.builder().id(1L).isbn("123").build();
+        when(repository.findByIsbn("123")).thenReturn(Optional.of(book));
+
+        //Execução
+        service.getBookByIsbn("123");
+        Optional<Book> foundBook = service.getBookByIsbn("123");
+
+        //Validações
+        assertThat(foundBook).contains(book);
+        verify(repository, times(1)).findByIsbn("123");
+    }
+
+    @Test
+    @DisplayName("Não deve manter em cache um isbn não encontrado")
+    public void getByIsbnNotFoundNotCachedTest(){
+        //cenário
+        when(repository.findByIsbn("123")).thenReturn(Optional.empty());
+
+        //Execução
+        service.getBookByIsbn("123");
+        service.getBookByIsbn("123");
+
+        //Validações
+        verify(repository, times(2)).findByIsbn("123");
+    }
+
+    @Test
+    @DisplayName("Deve remover o livro do cache ao atualizar e ao deletar")
+    public void evictOnUpdateAndDeleteTest(){
+        //cenário
+        Book book = Book.builder().id(1L).isbn("123").build();
+        when(repository.findById(1L)).thenReturn(Optional.of(book));
+        when(repository.findByIsbn("123")).thenReturn(Optional.of(book));
+        when(repository.save(book)).thenReturn(book);
+
+        //Execução
+        service.getById(1L);
+        service.getBookByIsbn("123");
+        service.update(book);
+        service.getById(1L);
+        service.getBookByIsbn("123");
+        service.delete(book);
+        service.getById(1L);
+        service.getBookByIsbn("123");
+
+        //Validações
+        verify(repository, times(3)).findById(1L);
+        verify(repository, times(3)).findByIsbn("123");
+    }
+
+    @Test
+    @DisplayName("Deve remover o livro atualizado do cache só depois do commit")
+    public void evictOnUpdateAfterCommitTest(){
+        //cenário
+        Book book = Book.builder().id(1L).isbn("123").build();
+        when(repository.findById(1L)).thenReturn(Optional.of(book));
+        when(repository.save(book)).thenReturn(book);
+        service.getById(1L);
+
+        //Execução
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.update(book);
+            service.getById(1L);
+            verify(repository, times(1)).findById(1L);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        service.getById(1L);
+
+        //Validações
+        verify(repository, times(2)).findById(1L);
+    }
+
+    //Sem @Configuration para não ser encontrada pelo component scan da aplicação
+    @EnableCaching
+    static class CacheTestConfig {
+
+        @Bean
+        public CacheManager cacheManager(){
+            return new CaffeineCacheManager(BookServiceImpl.BOOKS_CACHE, BookServiceImpl.BOOKS_BY_ISBN_CACHE);
+        }
+
+        @Bean
+        public BookService bookService(BookRepository repository, CacheManager cacheManager){
+            return new BookServiceImpl(repository, new BookSearchIndex(mock(JdbcTemplate.class)), mock(CountEstimator.class), mock(BookJsonCache.class), cacheManager, new SimpleMeterRegistry());
+        }
+    }
+}
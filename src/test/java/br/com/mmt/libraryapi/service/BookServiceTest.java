@@ -1,9 +1,13 @@
 package br.com.mmt.libraryapi.service;
 
+import br.com.mmt.libraryapi.api.cache.BookJsonCache;
 import br.com.mmt.libraryapi.exceptions.BusinessException;
 import br.com.mmt.libraryapi.model.entity.Book;
 import br.com.mmt.libraryapi.model.repository.BookRepository;
+import br.com.mmt.libraryapi.service.impl.BookSearchIndex;
 import br.com.mmt.libraryapi.service.impl.BookServiceImpl;
+import br.com.mmt.libraryapi.service.impl.CountEstimator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,10 +16,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -35,9 +42,18 @@ public class BookServiceTest {
     @MockBean
     BookRepository repository;
 
+    BookSearchIndex searchIndex;
+
+    BookJsonCache bookJson;
+
+    SimpleMeterRegistry registry;
+
     @BeforeEach
     public void setUp(){
-        this.service = new BookServiceImpl(repository);
+        this.searchIndex = new BookSearchIndex(mock(JdbcTemplate.class));
+        this.bookJson = mock(BookJsonCache.class);
+        this.registry = new SimpleMeterRegistry();
+        this.service = new BookServiceImpl(repository, searchIndex, new CountEstimator(registry, Runnable::run, 30000, 600000, 100), bookJson, new ConcurrentMapCacheManager(), registry);
     }
 
     @Test
@@ -80,6 +96,7 @@ public class BookServiceTest {
                 .hasMessage("Isbn já cadastrado.");
         //Verica que a repository nunca chama o metodo salvar
         Mockito.verify(repository, Mockito.never()).save(book);
+        assertThat(registry.get("library.business.rejections").tag("reason", "isbn_already_registered").counter().count()).isEqualTo(1.0);
 
     }
 
@@ -129,6 +146,7 @@ public class BookServiceTest {
         org.junit.jupiter.api.Assertions.assertDoesNotThrow(() -> service.delete(book));//valida se não foi lançado uma exceção
         //Validações
         Mockito.verify(repository, Mockito.times(1)).delete(book);
+        Mockito.verify(bookJson).evict(1L);
     }
 
     @Test
@@ -173,6 +191,7 @@ public class BookServiceTest {
         assertThat(book.getTitle()).isEqualTo(updatedBook.getTitle());
         assertThat(book.getIsbn()).isEqualTo(updatedBook.getIsbn());
         assertThat(book.getAuthor()).isEqualTo(updatedBook.getAuthor());
+        Mockito.verify(bookJson).evict(id);
 
     }
 
@@ -200,6 +219,44 @@ public class BookServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Deve filtrar livros com total estimado, contando uma única vez por filtro")
+    public void findBookEstimatedTest(){
+        //Cenário
+        Book filter = Book.builder().author("Fulano").build();
+        List<Book> list = Arrays.asList(createMockBook(), createMockBook());
+        when(repository.findAllSlice(Mockito.any(Example.class), Mockito.any(PageRequest.class)))
+                .thenAnswer(invocation -> new SliceImpl<>(list, invocation.getArgument(1), true));
+        when(repository.count(Mockito.any(Example.class))).thenReturn(57L);
+
+        //execução
+        Page<Book> first = service.findEstimated(filter, PageRequest.of(0, 2));
+        Page<Book> second = service.findEstimated(Book.builder().author("Fulano").build(), PageRequest.of(1, 2));
+
+        //Validações
+        assertThat(first.getTotalElements()).isEqualTo(57);
+        assertThat(second.getTotalElements()).isEqualTo(57);
+        assertThat(second.getTotalPages()).isEqualTo(29);
+        verify(repository, times(1)).count(Mockito.any(Example.class));
+        verify(repository, never()).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+    }
+
+    @Test
+    @DisplayName("Não deve contar quando a página estimada for a última")
+    public void findBookEstimatedLastPageTest(){
+        //Cenário
+        List<Book> list = Arrays.asList(createMockBook());
+        when(repository.findAllSlice(Mockito.any(Example.class), Mockito.any(PageRequest.class)))
+                .thenAnswer(invocation -> new SliceImpl<>(list, invocation.getArgument(1), false));
+
+        //execução
+        Page<Book> result = service.findEstimated(createMockBook(), PageRequest.of(3, 10));
+
+        //Validações
+        assertThat(result.getTotalElements()).isEqualTo(31);
+        verify(repository, never()).count(Mockito.any(Example.class));
+    }
+
     @Test
     @DisplayName("Deve obter um livro pelo isbn")
     public void getBookByIsbnTest(){
@@ -218,6 +275,42 @@ public class BookServiceTest {
         verify(repository, times(1)).findByIsbn(isbn);
     }
 
+    @Test
+    @DisplayName("Deve buscar livros pelo índice, na ordem de relevância")
+    public void searchBooksTest(){
+        //Cenário
+        Book byAuthor = Book.builder().id(1L).title("Spring Boot").author("José Alencar").isbn("1").build();
+        Book byTitle = Book.builder().id(2L).title("Memórias de José").author("Maria").isbn("2").build();
+        when(repository.save(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        service.save(byAuthor);
+        service.save(byTitle);
+        when(repository.findAllById(Mockito.anyIterable())).thenReturn(Arrays.asList(byAuthor, byTitle));
+
+        //Execução
+        Page<Book> result = service.search("jose", PageRequest.of(0, 10));
+
+        //Validações
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        assertThat(result.getContent()).isEqualTo(Arrays.asList(byTitle, byAuthor));
+    }
+
+    @Test
+    @DisplayName("Deve remover do índice de busca o livro deletado")
+    public void searchDeletedBookTest(){
+        //Cenário
+        Book book = Book.builder().id(1L).title("Spring Boot").author("Moises").isbn("1").build();
+        when(repository.save(book)).thenReturn(book);
+        service.save(book);
+
+        //Execução
+        service.delete(book);
+        Page<Book> result = service.search("spring", PageRequest.of(0, 10));
+
+        //Validações
+        assertThat(result.getTotalElements()).isEqualTo(0);
+        verify(repository, never()).findAllById(Mockito.anyIterable());
+    }
+
     private Book createMockBook() {
         return Book.builder()
                 .author("Moises")
@@ -0,0 +1,151 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.model.entity.EmailOutbox;
+import br.com.mmt.libraryapi.model.repository.EmailOutboxRepository;
+import br.com.mmt.libraryapi.service.impl.EmailDispatcher;
+import br.com.mmt.libraryapi.service.impl.EmailServiceImpl;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.mail.internet.MimeMessage;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class EmailDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    EmailOutboxRepository outboxRepository;
+
+    EmailService emailService;
+
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    public void setUp(){
+        emailService = new EmailServiceImpl(outboxRepository);
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Deve apenas enfileirar as mensagens e enviá-las ao servidor SMTP no dispatch")
+    public void enqueueAndDispatchTest() throws Exception {
+        //Cenário
+        Map<String, String> messages = new LinkedHashMap<>();
+        messages.put("a@mail.com", "Mensagem A");
+        messages.put("b@mail.com", "Mensagem B");
+        EmailDispatcher dispatcher = createDispatcher(greenMail.getSmtp().getPort(), 1, 3);
+
+        //Execução
+        emailService.sendMails(messages);
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+        dispatcher.dispatch();
+
+        //Validação
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(2);
+        assertThat(received[0].getAllRecipients()).hasSize(1);
+        assertThat(Arrays.stream(received).map(message -> {
+            try {
+                return message.getAllRecipients()[0].toString();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        })).containsExactlyInAnyOrder("a@mail.com", "b@mail.com");
+        assertThat(outboxRepository.findAll()).allMatch(outbox -> outbox.getStatus() == EmailOutbox.Status.SENT);
+        assertThat(registry.get("library.mail.outbox.size").tag("status", "pending").gauge().value()).isZero();
+        assertThat(registry.get("library.mail.sent").counter().count()).isEqualTo(2);
+        assertThat(registry.get("library.mail.send").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve reagendar com backoff quando o servidor SMTP falhar e mandar para DEAD ao esgotar as tentativas")
+    public void retryAndDeadLetterTest(){
+        //Cenário
+        emailService.sendMails("Mensagem", List.of("a@mail.com"));
+        EmailDispatcher dispatcher = createDispatcher(greenMail.getSmtp().getPort() + 1, 10, 2);
+
+        //Execução
+        dispatcher.dispatch();
+
+        //Validação
+        EmailOutbox outbox = outboxRepository.findAll().get(0);
+        assertThat(outbox.getStatus()).isEqualTo(EmailOutbox.Status.PENDING);
+        assertThat(outbox.getAttempts()).isEqualTo(1);
+        assertThat(outbox.getLastError()).isNotBlank();
+        assertThat(outbox.getClaimedBy()).isNull();
+        assertThat(outbox.getNextAttemptAt()).isAfter(LocalDateTime.now().plusSeconds(50));
+        assertThat(registry.get("library.mail.outbox.size").tag("status", "pending").gauge().value()).isEqualTo(1);
+
+        //Execução: antes do backoff nada é reenviado; depois dele a segunda falha esgota as tentativas
+        dispatcher.dispatch();
+        outbox = outboxRepository.findById(outbox.getId()).get();
+        assertThat(outbox.getAttempts()).isEqualTo(1);
+        outbox.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        outboxRepository.save(outbox);
+        dispatcher.dispatch();
+
+        //Validação
+        outbox = outboxRepository.findById(outbox.getId()).get();
+        assertThat(outbox.getStatus()).isEqualTo(EmailOutbox.Status.DEAD);
+        assertThat(outbox.getAttempts()).isEqualTo(2);
+        assertThat(registry.get("library.mail.outbox.size").tag("status", "dead").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("library.mail.dead").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Não deve enviar as mensagens reservadas por outro nó enquanto a reserva não expirar")
+    public void claimedByOtherNodeTest(){
+        //Cenário: outro nó reservou a mensagem
+        emailService.sendMails("Mensagem", List.of("a@mail.com"));
+        LocalDateTime now = LocalDateTime.now();
+        assertThat(outboxRepository.claim("outro-no", now, now.plusMinutes(5), 10)).isEqualTo(1);
+        EmailDispatcher dispatcher = createDispatcher(greenMail.getSmtp().getPort(), 10, 3);
+
+        //Execução
+        dispatcher.dispatch();
+
+        //Validação
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+        assertThat(outboxRepository.claim("mais-um-no", now, now.plusMinutes(5), 10)).isZero();
+
+        //Execução: a reserva expirou sem o envio ser registrado
+        EmailOutbox outbox = outboxRepository.findAll().get(0);
+        outbox.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        outboxRepository.save(outbox);
+        dispatcher.dispatch();
+
+        //Validação
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(outboxRepository.findById(outbox.getId()).get().getStatus()).isEqualTo(EmailOutbox.Status.SENT);
+    }
+
+    private EmailDispatcher createDispatcher(int port, int batchSize, int maxAttempts){
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(port);
+        return new EmailDispatcher(outboxRepository, mailSender, registry,
+                "mail@library-api.com", batchSize, maxAttempts, 60000, 3600000, 300000);
+    }
+}
@@ -0,0 +1,85 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.api.dto.LoanFilterDTO;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.service.impl.ExportServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import(ExportServiceImpl.class)
+public class ExportServiceTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    ExportService service;
+
+    @Test
+    @DisplayName("Deve exportar todos os emprestimos quando não houver filtro, desanexando as entidades")
+    public void exportAllLoansTest(){
+        //Cenário
+        Loan first = persistLoan("123", "Cicrano");
+        Loan second = persistLoan("456", "Fulano");
+        entityManager.flush();
+        entityManager.clear();
+        List<Loan> exported = new ArrayList<>();
+        //Execução
+        service.exportLoans(new LoanFilterDTO(), exported::add);
+        //Validação
+        assertThat(exported).extracting(Loan::getId).containsExactly(first.getId(), second.getId());
+        assertThat(exported.get(0).getBook().getIsbn()).isEqualTo("123");
+        assertThat(entityManager.getEntityManager().contains(exported.get(0))).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve exportar os emprestimos filtrando por isbn ou customer")
+    public void exportFilteredLoansTest(){
+        //Cenário
+        persistLoan("123", "Cicrano");
+        Loan byCustomer = persistLoan("456", "Fulano");
+        persistLoan("789", "Beltrano");
+        List<Loan> exported = new ArrayList<>();
+        //Execução
+        service.exportLoans(LoanFilterDTO.builder().isbn("123").customer("Fulano").build(), exported::add);
+        //Validação
+        assertThat(exported).hasSize(2).contains(byCustomer);
+    }
+
+    @Test
+    @DisplayName("Deve exportar todos os livros")
+    public void exportBooksTest(){
+        //Cenário
+        persistLoan("123", "Cicrano");
+        persistLoan("456", "Fulano");
+        List<Book> exported = new ArrayList<>();
+        //Execução
+        service.exportBooks(exported::add);
+        //Validação
+        assertThat(exported).extracting(Book::getIsbn).containsExactly("123", "456");
+    }
+
+    private Loan persistLoan(String isbn, String customer) {
+        Book book = Book.builder().title("Api Restfull").author("Moises").isbn(isbn).build();
+        entityManager.persist(book);
+        Loan loan = Loan.builder().book(book).customer(customer).loanDate(LocalDate.now()).build();
+        return entityManager.persist(loan);
+    }
+}
@@ -0,0 +1,238 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.api.dto.DailyLoanStatsDTO;
+import br.com.mmt.libraryapi.api.dto.LoanBatchItemDTO;
+import br.com.mmt.libraryapi.api.dto.LoanBatchResultDTO;
+import br.com.mmt.libraryapi.api.dto.LoanDTO;
+import br.com.mmt.libraryapi.api.dto.LoanReturnItemDTO;
+import br.com.mmt.libraryapi.api.dto.LoanReturnRequestDTO;
+import br.com.mmt.libraryapi.api.dto.LoanReturnResultDTO;
+import br.com.mmt.libraryapi.exceptions.BusinessException;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.model.repository.BookRepository;
+import br.com.mmt.libraryapi.model.repository.LoanRepository;
+import br.com.mmt.libraryapi.service.impl.ActiveLoanIndex;
+import br.com.mmt.libraryapi.service.impl.LoanBatchServiceImpl;
+import br.com.mmt.libraryapi.service.impl.LoanStatisticsServiceImpl;
+import br.com.mmt.libraryapi.service.impl.OverdueLoanTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class LoanBatchServiceTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    LoanRepository repository;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    ActiveLoanIndex activeLoans;
+
+    LoanStatisticsService statistics;
+
+    LoanBatchService service;
+
+    @BeforeEach
+    public void setUp(){
+        activeLoans = new ActiveLoanIndex(repository);
+        statistics = new LoanStatisticsServiceImpl(new JdbcTemplate(dataSource), new TransactionTemplate(transactionManager));
+        service = createService(repository);
+    }
+
+    @AfterEach
+    public void tearDown(){
+        //Os testes de criação gravam fora da transação do teste
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("delete from loan");
+        jdbcTemplate.update("delete from book");
+        jdbcTemplate.update("delete from loan_stats_book");
+        jdbcTemplate.update("delete from loan_stats_customer");
+        jdbcTemplate.update("delete from loan_stats_daily");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Deve criar emprestimos em lote informando o id ou o erro de cada item")
+    public void createLoansTest(){
+        //Cenário
+        Book first = saveBook("1");
+        Book second = saveBook("2");
+        Book loaned = saveBook("3");
+        repository.save(Loan.builder().book(loaned).customer("Fulano").loanDate(LocalDate.now()).build());
+        List<LoanDTO> loans = Arrays.asList(loan("1"), loan("2"), loan("1"), loan("3"), loan("inexistente"));
+
+        //Execução
+        LoanBatchResultDTO result = service.createLoans(loans);
+
+        //Validação
+        assertThat(result.getProcessed()).isEqualTo(5);
+        assertThat(result.getCreated()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getItems()).extracting(LoanBatchItemDTO::getError).containsExactly(
+                null, null, "Book already loaned.", "Book already loaned.", "Book not found for passed isbn.");
+        Loan created = repository.findById(result.getItems().get(0).getId()).get();
+        assertThat(created.getBook().getId()).isEqualTo(first.getId());
+        assertThat(created.getCustomerEmail()).isEqualTo("cicrano@email.com");
+        assertThat(repository.existsByBookAndNotReturned(second)).isTrue();
+        assertThat(activeLoans.size()).isEqualTo(2);
+        assertThat(statistics.getBookStats(first.getId()).getActiveLoans()).isEqualTo(1);
+        assertThat(statistics.getCustomerStats("Cicrano").getActiveLoans()).isEqualTo(2);
+        assertThat(statistics.getDailyStats(LocalDate.now(), LocalDate.now()))
+                .extracting(DailyLoanStatsDTO::getLoans).containsExactly(2L);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Deve gravar linha a linha quando outro emprestimo ativo for gravado durante o lote")
+    public void createLoansConcurrentLoanTest(){
+        //Cenário: a consulta de emprestimos ativos não enxerga o emprestimo do livro 2
+        Book first = saveBook("1");
+        Book loaned = saveBook("2");
+        repository.save(Loan.builder().book(loaned).customer("Fulano").loanDate(LocalDate.now()).build());
+        LoanRepository racing = mock(LoanRepository.class, delegatesTo(repository));
+        doReturn(Collections.emptyList())
+                .doAnswer(invocation -> repository.findActiveLoansByBookIdIn(invocation.getArgument(0)))
+                .when(racing).findActiveLoansByBookIdIn(any());
+        service = createService(racing);
+
+        //Execução
+        LoanBatchResultDTO result = service.createLoans(Arrays.asList(loan("1"), loan("2")));
+
+        //Validação
+        assertThat(result.getCreated()).isEqualTo(1);
+        assertThat(result.getItems().get(0).getId()).isNotNull();
+        assertThat(result.getItems().get(1).getError()).isEqualTo("Book already loaned.");
+        assertThat(repository.existsByBookAndNotReturned(first)).isTrue();
+        assertThat(repository.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve devolver emprestimos por id e por isbn informando o resultado de cada item")
+    public void returnLoansTest(){
+        //Cenário
+        Loan byId = persistLoan("1", false);
+        Loan byIsbn = persistLoan("2", false);
+        Loan returned = persistLoan("3", true);
+        entityManager.persist(Book.builder().title("Sem emprestimo").author("Ana").isbn("4").build());
+        activeLoans.load();
+        LoanReturnRequestDTO request = LoanReturnRequestDTO.builder()
+                .ids(Arrays.asList(byId.getId(), returned.getId(), 999L, byIsbn.getId()))
+                .isbns(Arrays.asList("2", "4", "inexistente"))
+                .build();
+
+        //Execução
+        LoanReturnResultDTO result = service.returnLoans(request);
+        //O índice em memória só muda depois do commit
+        assertThat(activeLoans.size()).isEqualTo(2);
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+
+        //Validação
+        assertThat(result.getProcessed()).isEqualTo(7);
+        assertThat(result.getReturned()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(5);
+        assertThat(result.getItems()).extracting(LoanReturnItemDTO::getStatus).containsExactly(
+                LoanReturnItemDTO.Status.RETURNED,
+                LoanReturnItemDTO.Status.ALREADY_RETURNED,
+                LoanReturnItemDTO.Status.NOT_FOUND,
+                LoanReturnItemDTO.Status.RETURNED,
+                //O emprestimo do isbn 2 já foi devolvido pelo id no mesmo lote
+                LoanReturnItemDTO.Status.ALREADY_RETURNED,
+                LoanReturnItemDTO.Status.ALREADY_RETURNED,
+                LoanReturnItemDTO.Status.NOT_FOUND);
+        assertThat(repository.findById(byId.getId()).get().getReturned()).isTrue();
+        assertThat(repository.findById(byId.getId()).get().getActiveBookId()).isNull();
+        assertThat(repository.existsByBookAndNotReturned(byIsbn.getBook())).isFalse();
+        assertThat(activeLoans.size()).isZero();
+        assertThat(statistics.getDailyStats(LocalDate.now(), LocalDate.now()))
+                .extracting(DailyLoanStatsDTO::getReturns).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Deve recusar um lote maior que o limite")
+    public void returnLoansBatchTooLargeTest(){
+        //Cenário
+        LoanReturnRequestDTO request = LoanReturnRequestDTO.builder()
+                .ids(Arrays.asList(1L, 2L, 3L, 4L))
+                .isbns(Arrays.asList("1", "2", "3", "4"))
+                .build();
+
+        //Execução
+        Throwable exception = catchThrowable(() -> service.returnLoans(request));
+
+        //Validação
+        assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("Batch limited to 7 loans.");
+    }
+
+    @Test
+    @DisplayName("Deve aceitar um lote vazio")
+    public void returnLoansEmptyTest(){
+        //Execução
+        LoanReturnResultDTO result = service.returnLoans(new LoanReturnRequestDTO(null, Collections.emptyList()));
+
+        //Validação
+        assertThat(result.getProcessed()).isZero();
+        assertThat(result.getItems()).isEmpty();
+    }
+
+    private LoanBatchService createService(LoanRepository loanRepository){
+        return new LoanBatchServiceImpl(loanRepository, bookRepository, activeLoans, statistics, mock(OverdueLoanTracker.class), new JdbcTemplate(dataSource),
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry(), 7);
+    }
+
+    private Book saveBook(String isbn){
+        return bookRepository.save(Book.builder().title("Livro " + isbn).author("Moises").isbn(isbn).build());
+    }
+
+    private static LoanDTO loan(String isbn){
+        return LoanDTO.builder().isbn(isbn).customer("Cicrano").customerEmail("cicrano@email.com").build();
+    }
+
+    private Loan persistLoan(String isbn, boolean returned){
+        Book book = Book.builder().title("Livro " + isbn).author("Moises").isbn(isbn).build();
+        entityManager.persist(book);
+        Loan loan = Loan.builder().book(book).customer("Cicrano").loanDate(LocalDate.now()).returned(returned).build();
+        return entityManager.persist(loan);
+    }
+}
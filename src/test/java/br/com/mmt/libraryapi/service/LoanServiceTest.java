@@ -5,21 +5,29 @@ import br.com.mmt.libraryapi.exceptions.BusinessException;
 import br.com.mmt.libraryapi.model.entity.Book;
 import br.com.mmt.libraryapi.model.entity.Loan;
 import br.com.mmt.libraryapi.model.repository.LoanRepository;
+import br.com.mmt.libraryapi.service.impl.ActiveLoanIndex;
+import br.com.mmt.libraryapi.service.impl.CountEstimator;
 import br.com.mmt.libraryapi.service.impl.LoanServiceImpl;
+import br.com.mmt.libraryapi.service.impl.OverdueLoanTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,11 +42,23 @@ public class LoanServiceTest {
     @MockBean
     LoanRepository repository;
 
+    @MockBean
+    LoanStatisticsService statistics;
+
+    @MockBean
+    OverdueLoanTracker overdueLoans;
+
     LoanService service;
 
+    ActiveLoanIndex activeLoans;
+
+    SimpleMeterRegistry registry;
+
     @BeforeEach
     public void setUp(){
-        service = new LoanServiceImpl(repository);
+        activeLoans = new ActiveLoanIndex(repository);
+        registry = new SimpleMeterRegistry();
+        service = new LoanServiceImpl(repository, activeLoans, new CountEstimator(registry, Runnable::run, 30000, 600000, 100), statistics, overdueLoans, registry);
     }
 
     @Test
@@ -70,6 +90,9 @@ public class LoanServiceTest {
         assertThat(loan.getBook()).isEqualTo(savedLoan.getBook());
         assertThat(loan.getCustomer()).isEqualTo(savedLoan.getCustomer());
         assertThat(loan.getLoanDate()).isEqualTo(savedLoan.getLoanDate());
+        assertThat(activeLoans.isLoaned(book.getId())).isTrue();
+        verify(repository, never()).existsByBookAndNotReturned(book);
+        verify(statistics).loansCreated(Collections.singletonList(savedLoan));
     }
 
     @Test
@@ -84,6 +107,7 @@ public class LoanServiceTest {
                 .customer(customer)
                 .loanDate(LocalDate.now())
                 .build();
+        activeLoans.register(Loan.builder().id(2L).book(book).build());
         when(repository.existsByBookAndNotReturned(book)).thenReturn(true);
         //Execução
         Throwable throwable = catchThrowable(() -> service.save(savingLoan));
@@ -92,9 +116,47 @@ public class LoanServiceTest {
                 .isInstanceOf(BusinessException.class)
                 .hasMessage("Book already loaned.");
         verify(repository, never()).save(savingLoan);
+        assertThat(registry.get("library.business.rejections").tag("reason", "book_already_loaned").counter().count()).isEqualTo(1);
 
     }
 
+    @Test
+    @DisplayName("Deve salvar o emprestimo quando o índice estiver desatualizado")
+    public void staleIndexSaveLoanTest(){
+
+        //Cenário
+        Loan savingLoan = createLoan();
+        Book book = savingLoan.getBook();
+        activeLoans.register(Loan.builder().id(2L).book(book).build());
+        Loan savedLoan = createLoan();
+        savedLoan.setId(3L);
+        when(repository.existsByBookAndNotReturned(book)).thenReturn(false);
+        when(repository.save(savingLoan)).thenReturn(savedLoan);
+        //Execução
+        Loan loan = service.save(savingLoan);
+        //Validações
+        assertThat(loan.getId()).isEqualTo(3L);
+        assertThat(activeLoans.isLoaned(book.getId())).isTrue();
+        verify(repository).existsByBookAndNotReturned(book);
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro de negocio quando a constraint de emprestimo ativo for violada")
+    public void concurrentLoanSaveLoanTest(){
+
+        //Cenário
+        Loan savingLoan = createLoan();
+        when(repository.save(savingLoan)).thenThrow(new DataIntegrityViolationException("active_book_id"));
+        //Execução
+        Throwable throwable = catchThrowable(() -> service.save(savingLoan));
+        //Validações
+        assertThat(throwable)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Book already loaned.");
+        assertThat(activeLoans.isLoaned(savingLoan.getBook().getId())).isFalse();
+        assertThat(registry.get("library.business.rejections").tag("reason", "book_already_loaned").counter().count()).isEqualTo(1);
+    }
+
     @Test
     @DisplayName("Deve obter as informações de um emprestimo pelo ID")
     public void getLoanDetailsTest(){
@@ -125,13 +187,18 @@ public class LoanServiceTest {
         //cenário
         Loan loan = createLoan();
         loan.setId(1l);
+        activeLoans.register(loan);
+        //Estado lido da base: emprestimo ativo
+        loan.updateActiveBookId();
         loan.setReturned(true);
         //Execução
         when(repository.save(loan)).thenReturn(loan);
         Loan updateLoan = service.update(loan);
         //Validação
         assertThat(updateLoan.getReturned()).isTrue();
+        assertThat(activeLoans.isLoaned(loan.getBook().getId())).isFalse();
         verify(repository).save(loan);
+        verify(statistics).loansReturned(Collections.singletonList(loan));
 
     }
 
@@ -163,6 +230,43 @@ public class LoanServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Deve filtrar emprestimos só pelo customer quando o isbn não for informado")
+    public void findLoanByCustomerTest(){
+        //cenário
+        LoanFilterDTO filterDTO = LoanFilterDTO.builder().customer("Cicrano").build();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        List<Loan> list = Arrays.asList(createLoan());
+        when(repository.findByCustomer("Cicrano", pageRequest)).thenReturn(new PageImpl<>(list, pageRequest, 1));
+
+        //Execução
+        Page<Loan> result = service.find(filterDTO, pageRequest);
+
+        //Validação
+        assertThat(result.getContent()).isEqualTo(list);
+        verify(repository, never()).findhByBookIsbnOrCustomer(Mockito.any(), Mockito.any(), Mockito.any(PageRequest.class));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar emprestimos sem consultar o total")
+    public void findLoanSliceTest(){
+        //cenário
+        LoanFilterDTO filterDTO = LoanFilterDTO.builder().customer("Cicrano").isbn("321").build();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        List<Loan> list = Arrays.asList(createLoan());
+        when(repository.findSliceByBookIsbnOrCustomer("321", "Cicrano", pageRequest))
+                .thenReturn(new SliceImpl<>(list, pageRequest, true));
+
+        //Execução
+        Slice<Loan> result = service.findSlice(filterDTO, pageRequest);
+
+        //Validação
+        assertThat(result.getContent()).isEqualTo(list);
+        assertThat(result.hasNext()).isTrue();
+        verify(repository, never()).findhByBookIsbnOrCustomer(Mockito.anyString(), Mockito.anyString(), Mockito.any(PageRequest.class));
+        verify(repository, never()).countByBookIsbnOrCustomer(Mockito.anyString(), Mockito.anyString());
+    }
+
     public static Loan createLoan(){
         Book book = Book.builder().id(1L).build();
         String customer = "Cicrano";
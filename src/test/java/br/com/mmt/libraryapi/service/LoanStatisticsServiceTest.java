@@ -0,0 +1,133 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.api.dto.BookLoanStatsDTO;
+import br.com.mmt.libraryapi.api.dto.CustomerLoanStatsDTO;
+import br.com.mmt.libraryapi.api.dto.DailyLoanStatsDTO;
+import br.com.mmt.libraryapi.exceptions.BusinessException;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.service.impl.LoanStatisticsServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class LoanStatisticsServiceTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    LoanStatisticsService service;
+
+    @BeforeEach
+    public void setUp(){
+        service = new LoanStatisticsServiceImpl(jdbcTemplate, new TransactionTemplate(transactionManager));
+    }
+
+    @Test
+    @DisplayName("Deve somar os emprestimos criados e descontar os devolvidos")
+    public void incrementalTest(){
+        //Cenário
+        LocalDate today = LocalDate.now();
+        Loan recent = loan(1L, today);
+        Loan overdue = loan(2L, today.minusDays(10));
+        Loan other = loan(1L, today);
+        other.setCustomer("Fulano");
+
+        //Execução
+        service.loansCreated(Arrays.asList(recent, overdue));
+        service.loansCreated(Collections.singletonList(other));
+        service.loansReturned(Collections.singletonList(recent));
+
+        //Validação
+        BookLoanStatsDTO book = service.getBookStats(1L);
+        assertThat(book.getTotalLoans()).isEqualTo(2);
+        assertThat(book.getActiveLoans()).isEqualTo(1);
+        CustomerLoanStatsDTO customer = service.getCustomerStats("Cicrano");
+        assertThat(customer.getActiveLoans()).isEqualTo(1);
+        assertThat(customer.getOverdueLoans()).isEqualTo(1);
+        List<DailyLoanStatsDTO> daily = service.getDailyStats(today.minusDays(10), today);
+        assertThat(daily).extracting(DailyLoanStatsDTO::getDate).containsExactly(today.minusDays(10), today);
+        assertThat(daily).extracting(DailyLoanStatsDTO::getLoans).containsExactly(1L, 2L);
+        assertThat(daily).extracting(DailyLoanStatsDTO::getReturns).containsExactly(0L, 1L);
+    }
+
+    @Test
+    @DisplayName("Deve recalcular os contadores a partir da tabela de emprestimos")
+    public void reconcileTest(){
+        //Cenário: emprestimos gravados sem passar pelos contadores, e contadores com desvio
+        LocalDate today = LocalDate.now();
+        Book book = entityManager.persist(Book.builder().title("Api Restfull").author("Moises").isbn("123").build());
+        entityManager.persist(Loan.builder().book(book).customer("Cicrano").loanDate(today.minusDays(5)).returned(true).build());
+        entityManager.persist(Loan.builder().book(book).customer("Cicrano").loanDate(today.minusDays(4)).build());
+        entityManager.flush();
+        service.loansCreated(Collections.singletonList(loan(book.getId(), today)));
+
+        //Execução
+        service.reconcile();
+
+        //Validação
+        BookLoanStatsDTO bookStats = service.getBookStats(book.getId());
+        assertThat(bookStats.getTotalLoans()).isEqualTo(2);
+        assertThat(bookStats.getActiveLoans()).isEqualTo(1);
+        CustomerLoanStatsDTO customer = service.getCustomerStats("Cicrano");
+        assertThat(customer.getActiveLoans()).isEqualTo(1);
+        assertThat(customer.getOverdueLoans()).isEqualTo(1);
+        assertThat(service.getDailyStats(today.minusDays(5), today))
+                .extracting(DailyLoanStatsDTO::getLoans).containsExactly(1L, 1L, 0L);
+    }
+
+    @Test
+    @DisplayName("Deve retornar zeros para um customer sem emprestimos")
+    public void customerWithoutLoansTest(){
+        //Execução
+        CustomerLoanStatsDTO customer = service.getCustomerStats("Ninguém");
+
+        //Validação
+        assertThat(customer.getActiveLoans()).isZero();
+        assertThat(customer.getOverdueLoans()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve recusar um período diário maior que o limite")
+    public void dailyPeriodTooLargeTest(){
+        //Execução
+        Throwable exception = catchThrowable(() -> service.getDailyStats(LocalDate.now().minusYears(2), LocalDate.now()));
+
+        //Validação
+        assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("Period limited to 366 days.");
+    }
+
+    private static Loan loan(Long bookId, LocalDate loanDate){
+        return Loan.builder()
+                .book(Book.builder().id(bookId).build())
+                .customer("Cicrano")
+                .loanDate(loanDate)
+                .build();
+    }
+}
@@ -0,0 +1,203 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.entity.LateLoanNotificationRun;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.model.repository.LateLoanNotificationRunRepository;
+import br.com.mmt.libraryapi.model.repository.LoanRepository;
+import br.com.mmt.libraryapi.service.impl.OverdueLoanTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class OverdueLoanTrackerTest {
+
+    @MockBean
+    LoanRepository repository;
+
+    @MockBean
+    LateLoanNotificationRunRepository runRepository;
+
+    @MockBean
+    JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @MockBean
+    TaskScheduler scheduler;
+
+    @MockBean
+    OverdueLoanHandler handler;
+
+    OverdueLoanTracker tracker;
+
+    LocalDate today;
+
+    @BeforeEach
+    public void setUp(){
+        today = LocalDate.now();
+        tracker = new OverdueLoanTracker(repository, runRepository, jdbcTemplate, new TransactionTemplate(transactionManager),
+                scheduler, Collections.singletonList(handler), new SimpleMeterRegistry(), "events");
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        doReturn(mock(ScheduledFuture.class)).when(scheduler).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    @DisplayName("Deve notificar os emprestimos do vencimento lidos da base, reservando a data de vencimento")
+    public void fireDueTest(){
+        //Cenário: o emprestimo 5 foi criado em outro nó e só existe na base
+        tracker.registerAll(Arrays.asList(1L, 2L), today.minusDays(4));
+        tracker.registerAll(Collections.singletonList(3L), today);
+        when(repository.findActiveByLoanDateAfter(eq(today.minusDays(4)), eq(0L), any()))
+                .thenReturn(Arrays.asList(loan(1L, today.minusDays(4)), loan(2L, today.minusDays(4)), loan(5L, today.minusDays(4))));
+
+        //Execução
+        tracker.fireDue(today);
+
+        //Validação
+        ArgumentCaptor<List<Loan>> overdue = ArgumentCaptor.forClass(List.class);
+        verify(handler).onOverdue(overdue.capture());
+        assertThat(overdue.getValue()).extracting(Loan::getId).containsExactly(1L, 2L, 5L);
+        verify(jdbcTemplate).update(startsWith("insert into late_loan_notification_run"), eq(Date.valueOf(today)));
+        verify(jdbcTemplate).update(startsWith("update late_loan_notification_run"), eq(1L), eq(Date.valueOf(today)));
+        assertThat(tracker.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve tirar da fila o emprestimo devolvido")
+    public void returnedLoanTest(){
+        //Cenário
+        Loan loan = loan(1L, today.minusDays(4));
+        tracker.register(loan);
+        loan.setReturned(true);
+
+        //Execução
+        tracker.register(loan);
+        tracker.fireDue(today);
+
+        //Validação
+        assertThat(tracker.size()).isZero();
+        verifyNoInteractions(handler);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Não deve notificar uma data de vencimento já reservada por outra execução")
+    public void alreadyClaimedTest(){
+        //Cenário
+        tracker.registerAll(Collections.singletonList(1L), today.minusDays(4));
+        when(jdbcTemplate.update(startsWith("insert into late_loan_notification_run"), any(Date.class)))
+                .thenThrow(new DuplicateKeyException("run_date"));
+
+        //Execução
+        tracker.fireDue(today);
+
+        //Validação
+        verifyNoInteractions(handler);
+        verify(repository, never()).findActiveByLoanDateAfter(any(), any(), any());
+        assertThat(tracker.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve devolver o vencimento para a fila e tentar de novo quando a reserva falha")
+    public void failedClaimTest(){
+        //Cenário
+        tracker.registerAll(Collections.singletonList(1L), today.minusDays(4));
+        when(jdbcTemplate.update(startsWith("insert into late_loan_notification_run"), any(Date.class)))
+                .thenThrow(new QueryTimeoutException("run_date"))
+                .thenReturn(1);
+        when(repository.findActiveByLoanDateAfter(eq(today.minusDays(4)), eq(0L), any()))
+                .thenReturn(Collections.singletonList(loan(1L, today.minusDays(4))));
+
+        //Execução
+        tracker.fireDue(today);
+        verifyNoInteractions(handler);
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Instant> retryAt = ArgumentCaptor.forClass(Instant.class);
+        verify(scheduler, times(2)).schedule(retry.capture(), retryAt.capture());
+        retry.getValue().run();
+
+        //Validação
+        assertThat(retryAt.getValue()).isAfter(Instant.now().plusSeconds(30));
+        verify(handler).onOverdue(anyList());
+        verify(jdbcTemplate).update(startsWith("update late_loan_notification_run set notified_customers = ?"), eq(1L), eq(Date.valueOf(today)));
+    }
+
+    @Test
+    @DisplayName("Deve refazer na subida as reservas que ficaram sem terminar")
+    public void resumeUnfinishedTest(){
+        //Cenário
+        LocalDate dueDate = today.minusDays(2);
+        when(runRepository.findByFinishedFalse()).thenReturn(Collections.singletonList(
+                LateLoanNotificationRun.builder().runDate(dueDate).finished(false).build()));
+        when(jdbcTemplate.update(startsWith("update late_loan_notification_run set notified_customers = 0"), any(Date.class)))
+                .thenReturn(1);
+        when(repository.findActiveByLoanDateAfter(eq(dueDate.minusDays(4)), eq(0L), any()))
+                .thenReturn(Collections.singletonList(loan(1L, dueDate.minusDays(4))));
+
+        //Execução
+        tracker.load();
+        ArgumentCaptor<Runnable> wakeup = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(wakeup.capture(), any(Instant.class));
+        wakeup.getValue().run();
+
+        //Validação
+        verify(handler).onOverdue(anyList());
+        verify(jdbcTemplate, never()).update(startsWith("insert into late_loan_notification_run"), any(Date.class));
+        verify(jdbcTemplate).update(startsWith("update late_loan_notification_run set notified_customers = ?"), eq(1L), eq(Date.valueOf(dueDate)));
+    }
+
+    @Test
+    @DisplayName("Deve agendar o disparo para o início do vencimento mais próximo")
+    public void scheduleEarliestTest(){
+        //Execução
+        tracker.registerAll(Collections.singletonList(1L), today);
+        tracker.registerAll(Collections.singletonList(2L), today.minusDays(1));
+
+        //Validação
+        ArgumentCaptor<Instant> instants = ArgumentCaptor.forClass(Instant.class);
+        verify(scheduler, times(2)).schedule(any(Runnable.class), instants.capture());
+        assertThat(instants.getAllValues()).containsExactly(
+                today.plusDays(4).atStartOfDay(ZoneId.systemDefault()).toInstant(),
+                today.plusDays(3).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static Loan loan(Long id, LocalDate loanDate){
+        return Loan.builder()
+                .id(id)
+                .book(Book.builder().id(id).title("Livro " + id).build())
+                .customer("Cicrano")
+                .customerEmail("cicrano@email.com")
+                .loanDate(loanDate)
+                .build();
+    }
+}
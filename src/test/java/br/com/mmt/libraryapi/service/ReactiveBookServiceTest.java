@@ -0,0 +1,54 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.config.metrics.MetricsConfig;
+import br.com.mmt.libraryapi.exceptions.BusinessException;
+import br.com.mmt.libraryapi.model.reactive.BookRow;
+import br.com.mmt.libraryapi.model.reactive.BookRowRepository;
+import br.com.mmt.libraryapi.service.impl.ReactiveBookServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ReactiveBookServiceTest {
+
+    ReactiveBookService service;
+
+    BookRowRepository repository;
+
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    public void setUp(){
+        this.repository = mock(BookRowRepository.class);
+        this.registry = new SimpleMeterRegistry();
+        this.service = new ReactiveBookServiceImpl(repository, registry);
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro de negócio quando outro livro com o mesmo isbn for gravado depois da consulta")
+    public void saveBookWithDuplicatedIsbnRaceTest(){
+        //Cenário
+        BookRow book = BookRow.builder().title("Aventuras").author("Fulano").isbn("123").build();
+        when(repository.existsByIsbn("123")).thenReturn(Mono.just(false));
+        when(repository.save(book)).thenReturn(Mono.error(new DuplicateKeyException("ux_book_isbn")));
+
+        //Execução
+        Throwable exception = catchThrowable(() -> service.save(book).block());
+
+        //Validação
+        assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("Isbn já cadastrado.");
+        assertThat(registry.get(MetricsConfig.BUSINESS_REJECTIONS).tag("reason", "isbn_already_registered").counter().count()).isEqualTo(1);
+    }
+}
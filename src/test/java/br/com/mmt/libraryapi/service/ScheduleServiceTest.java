@@ -0,0 +1,134 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.entity.LateLoanNotificationRun;
+import br.com.mmt.libraryapi.model.entity.Loan;
+import br.com.mmt.libraryapi.model.repository.LateLoanNotificationRunRepository;
+import br.com.mmt.libraryapi.service.impl.ScheduleService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ScheduleServiceTest {
+
+    @MockBean
+    LoanService loanService;
+
+    @MockBean
+    EmailService emailService;
+
+    @MockBean
+    LateLoanNotificationRunRepository runRepository;
+
+    ScheduleService service;
+
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    public void setUp(){
+        registry = new SimpleMeterRegistry();
+        service = new ScheduleService(loanService, emailService, runRepository, registry, "Atrasado", 2, "scan");
+        when(runRepository.findFirstByFinishedFalseOrderByRunDateDesc()).thenReturn(Optional.empty());
+        when(runRepository.findById(any(LocalDate.class))).thenReturn(Optional.empty());
+    }
+
+    @Test
+    @DisplayName("Deve enviar uma mensagem por customer, agrupando emprestimos que atravessam blocos")
+    public void sendOneMessagePerCustomerTest(){
+        //Cenário
+        LocalDate today = LocalDate.now();
+        Loan first = createLateLoan(1L, "a@mail.com", "Livro 1");
+        Loan second = createLateLoan(2L, "a@mail.com", "Livro 2");
+        Loan third = createLateLoan(3L, "b@mail.com", "Livro 3");
+        when(loanService.getLateLoansAfter(today, null, 0L, 2)).thenReturn(Arrays.asList(first, second));
+        when(loanService.getLateLoansAfter(today, "a@mail.com", 2L, 2)).thenReturn(Collections.singletonList(third));
+        when(loanService.countLateLoans(today)).thenReturn(3L);
+
+        //Execução
+        service.sendEmailToLateLoans();
+
+        //Validação
+        ArgumentCaptor<Map<String, String>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(emailService).sendMails(captor.capture());
+        Map<String, String> messages = captor.getValue();
+        assertThat(messages).containsOnlyKeys("a@mail.com", "b@mail.com");
+        assertThat(messages.get("a@mail.com")).startsWith("Atrasado").contains("Livro 1", "Livro 2").doesNotContain("Livro 3");
+
+        ArgumentCaptor<LateLoanNotificationRun> runCaptor = ArgumentCaptor.forClass(LateLoanNotificationRun.class);
+        verify(runRepository, atLeastOnce()).save(runCaptor.capture());
+        LateLoanNotificationRun run = runCaptor.getValue();
+        assertThat(run.isFinished()).isTrue();
+        assertThat(run.getLastCustomerEmail()).isEqualTo("b@mail.com");
+        assertThat(run.getNotifiedCustomers()).isEqualTo(2);
+        assertThat(registry.get("library.lateloans.backlog").gauge().value()).isZero();
+        assertThat(registry.get("library.lateloans.notified").counter().count()).isEqualTo(2);
+        assertThat(registry.get("library.lateloans.run").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve retomar uma execução interrompida a partir do último customer notificado")
+    public void resumeUnfinishedRunTest(){
+        //Cenário
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        LateLoanNotificationRun unfinished = LateLoanNotificationRun.builder()
+                .runDate(yesterday).lastCustomerEmail("a@mail.com").notifiedCustomers(1).build();
+        when(runRepository.findFirstByFinishedFalseOrderByRunDateDesc()).thenReturn(Optional.of(unfinished));
+        Loan loan = createLateLoan(3L, "b@mail.com", "Livro 3");
+        when(loanService.getLateLoansAfter(yesterday, "a@mail.com", Long.MAX_VALUE, 2)).thenReturn(Collections.singletonList(loan));
+
+        //Execução
+        service.resumeUnfinishedRun();
+
+        //Validação
+        verify(emailService).sendMails(argThat((Map<String, String> messages) -> messages.keySet().equals(Collections.singleton("b@mail.com"))));
+        assertThat(unfinished.isFinished()).isTrue();
+        assertThat(unfinished.getNotifiedCustomers()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Não deve marcar a execução como concluída quando o envio falhar")
+    public void keepCheckpointOnFailureTest(){
+        //Cenário
+        LocalDate today = LocalDate.now();
+        Loan loan = createLateLoan(1L, "a@mail.com", "Livro 1");
+        when(loanService.getLateLoansAfter(today, null, 0L, 2)).thenReturn(Collections.singletonList(loan));
+        doThrow(new IllegalStateException("SMTP fora")).when(emailService).sendMails(anyMap());
+
+        //Execução
+        Throwable throwable = catchThrowable(() -> service.sendEmailToLateLoans());
+
+        //Validação
+        assertThat(throwable).isInstanceOf(IllegalStateException.class);
+        verify(runRepository, never()).save(any());
+    }
+
+    private Loan createLateLoan(Long id, String email, String title){
+        return Loan.builder()
+                .id(id)
+                .book(Book.builder().id(id).title(title).build())
+                .customer("Cicrano")
+                .customerEmail(email)
+                .loanDate(LocalDate.now().minusDays(5))
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+package br.com.mmt.libraryapi.service;
+
+import br.com.mmt.libraryapi.api.cache.BookJsonCache;
+import br.com.mmt.libraryapi.config.metrics.MetricsConfig;
+import br.com.mmt.libraryapi.model.entity.Book;
+import br.com.mmt.libraryapi.model.repository.BookRepository;
+import br.com.mmt.libraryapi.service.impl.BookSearchIndex;
+import br.com.mmt.libraryapi.service.impl.CountEstimator;
+import br.com.mmt.libraryapi.service.impl.BookServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@ContextConfiguration(classes = ServiceMetricsTest.MetricsTestConfig.class)
+public class ServiceMetricsTest {
+
+    @Autowired
+    BookService service;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @MockBean
+    BookRepository repository;
+
+    @Test
+    @DisplayName("Deve registrar o tempo de cada método do service com as tags de classe e método")
+    public void serviceTimerTest(){
+        //Cenário
+        when(repository.findById(1L)).thenReturn(Optional.of(Book.builder().id(1L).build()));
+
+        //Execução
+        service.getById(1L);
+        service.getById(1L);
+
+        //Validação
+        Timer timer = registry.get(MetricsConfig.SERVICE_TIMER)
+                .tag("class", BookServiceImpl.class.getName())
+                .tag("method", "getById")
+                .tag("exception", "none")
+                .timer();
+        assertThat(timer.count()).isEqualTo(2);
+    }
+
+    //Sem @Configuration para não ser encontrada pelo component scan da aplicação
+    @EnableAspectJAutoProxy(proxyTargetClass = true)
+    @Import(MetricsConfig.class)
+    static class MetricsTestConfig {
+
+        @Bean
+        public MeterRegistry meterRegistry(){
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        public BookService bookService(BookRepository repository, MeterRegistry registry){
+            return new BookServiceImpl(repository, new BookSearchIndex(mock(JdbcTemplate.class)), mock(CountEstimator.class), mock(BookJsonCache.class), new ConcurrentMapCacheManager(), registry);
+        }
+    }
+}